@@ -0,0 +1,126 @@
+package benchmarks;
+
+import game.Game;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import mcts.ActionStats;
+import mcts.Node;
+import mcts.Node.SimulationResult;
+import mcts.NodeArena;
+import mcts.policies.backpropagation.BackpropagationFlags;
+import mcts.policies.playout.IPlayoutPolicy;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.GraveSelectionPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.GameLoader;
+import other.context.Context;
+import other.move.Move;
+import other.trial.Trial;
+import search.mcts.MCTS.MoveKey;
+
+// Cost of backpropagating the AMAF statistics of one playout from the deepest leaf of a GRAVE tree: the single
+// backward pass of Node.propagate against updating a map per ancestor with its whole history suffix (the previous
+// implementation). AmafTest checks that both produce the same statistics.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AmafBenchmark {
+    @Param({"Hex.lud"})
+    public String gameName;
+
+    @Param({"20000"})
+    public int treeIterations;
+
+    private Node leaf;
+    private List<SimulationResult> simResults;
+    private int playerCount;
+
+    // statistics of the previous implementation, by ancestor of the leaf
+    private final Map<Node, Map<MoveKey, ActionStats>> mapStatistics = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        final Game game = GameLoader.loadGameFromName(gameName);
+        final Context context = new Context(game, new Trial(game));
+        game.start(context);
+
+        playerCount = game.players().count();
+        final ISelectionPolicy selectionPolicy = new GraveSelectionPolicy();
+        final IPlayoutPolicy playoutPolicy = new UniformPlayoutPolicy();
+        final int flags = selectionPolicy.getBackpropagationFlags();
+
+        final Node root = Node.createRoot(new NodeArena(playerCount), context);
+        Node deepest = root;
+
+        for (var i = 0; i < treeIterations; i++) {
+            Node current = root;
+            while (!current.isTerminal() && current.isExpanded()) {
+                current = current.select(selectionPolicy);
+            }
+
+            final Node newNode = current.expand();
+            newNode.propagate(List.of(newNode.simulate(playoutPolicy)), flags, 1);
+
+            if (newNode.getDepth() > deepest.getDepth() && !newNode.isTerminal()) {
+                deepest = newNode;
+            }
+        }
+
+        leaf = deepest;
+        simResults = List.of(leaf.simulate(playoutPolicy));
+    }
+
+    @Benchmark
+    public Node singlePass() {
+        leaf.propagate(simResults, BackpropagationFlags.AMAF_STATS, 1);
+        return leaf;
+    }
+
+    @Benchmark
+    public Node perAncestor() {
+        leaf.propagate(simResults, 0, 1);
+        propagateMaps();
+        return leaf;
+    }
+
+    private void propagateMaps() {
+        final var simRes = simResults.getFirst();
+        final var utilities = simRes.utilities();
+        final var fullActionHistory = simRes.context().trial().generateCompleteMovesList();
+
+        Node node = leaf;
+        while (node != null) {
+            final var actionHistory = fullActionHistory.subList(node.getDepth(), fullActionHistory.size());
+            final var statistics = mapStatistics.computeIfAbsent(node, k -> new ConcurrentHashMap<>());
+
+            for (final Move act : actionHistory) {
+                final var stats = statistics.computeIfAbsent(new MoveKey(act, 0), k -> new ActionStats(playerCount));
+
+                synchronized (stats) {
+                    stats.visitCount++;
+                    for (var p = 1; p <= playerCount; p++) {
+                        stats.scoreSums[p] += utilities[p];
+                    }
+                }
+            }
+            node = node.getParent();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package benchmarks;
+
+import game.Game;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import main.collections.FastArrayList;
+import mcts.ActionStats;
+import mcts.Node;
+import mcts.Node.SimulationResult;
+import mcts.NodeArena;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.GameLoader;
+import other.context.Context;
+import other.move.Move;
+import other.trial.Trial;
+import search.mcts.MCTS.MoveKey;
+
+// Heap retained per node by the tree of a search from the initial state that stops once it has numNodes nodes: the
+// node handles and the NodeArena (with a context in every node, or with context replay) against one object per node
+// with its own statistics arrays, AMAF map and children list (the previous implementation, see ObjectNode). Both
+// trees are grown by UCB1 selection and one expansion per iteration; the playouts are replaced by random results,
+// which do not change the size of a node. The retained heap is the difference of the used heap after a full GC before
+// and after the tree is built, reported as bytesPerNode. The object store needs the heap of the previous
+// implementation for 10M nodes, smaller trees can be measured with e.g. -p numNodes=1000000.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx64g"})
+public class NodeMemoryBenchmark {
+    private static final double EXPLORATION = Math.sqrt(2.0);
+
+    @Param({"Hex.lud", "Gomoku.lud"})
+    public String gameName;
+
+    @Param({"10000000"})
+    public int numNodes;
+
+    @Param({"objects", "arena", "arenaReplay"})
+    public String store;
+
+    private Context rootContext;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Memory {
+        public long bytesPerNode;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerNode = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final Game game = GameLoader.loadGameFromName(gameName);
+        rootContext = new Context(game, new Trial(game));
+        game.start(rootContext);
+    }
+
+    @Benchmark
+    public void buildTree(final Memory memory) {
+        final long before = usedHeap();
+        final Object tree = "objects".equals(store) ? buildObjectTree() : buildArenaTree("arenaReplay".equals(store));
+        final long after = usedHeap();
+
+        Reference.reachabilityFence(tree);
+        memory.bytesPerNode = (after - before) / numNodes;
+    }
+
+    private Node buildArenaTree(final boolean replayContexts) {
+        final int playerCount = rootContext.game().players().count();
+        final var root = Node.createRoot(new NodeArena(playerCount), new Context(rootContext));
+        final var selectionPolicy = new UCB1SelectionPolicy();
+
+        int count = 1;
+        while (count < numNodes) {
+            Node current = root;
+            while (!current.isTerminal() && current.isExpanded()) {
+                current = current.select(selectionPolicy);
+            }
+
+            // with context replay the child does not store the context it is expanded into
+            final var newNode = current.expand(replayContexts ? current.createContext(null) : null, false);
+            if (newNode != current) {
+                count++;
+            }
+            newNode.propagate(new SimulationResult(null, randomUtilities(playerCount)), 0, 1);
+        }
+        return root;
+    }
+
+    private ObjectNode buildObjectTree() {
+        final int playerCount = rootContext.game().players().count();
+        final var root = new ObjectNode(null, null, new Context(rootContext));
+
+        int count = 1;
+        while (count < numNodes) {
+            ObjectNode current = root;
+            while (current.unexpandedMoves.isEmpty() && !current.children.isEmpty()) {
+                current = current.select();
+            }
+
+            ObjectNode newNode = current;
+            if (!current.unexpandedMoves.isEmpty()) {
+                newNode = current.expand();
+                count++;
+            }
+            newNode.propagate(randomUtilities(playerCount));
+        }
+        return root;
+    }
+
+    // A win for a random player
+    private static double[] randomUtilities(final int playerCount) {
+        final int winner = 1 + ThreadLocalRandom.current().nextInt(playerCount);
+        final var utilities = new double[playerCount + 1];
+        for (var p = 1; p <= playerCount; p++) {
+            utilities[p] = p == winner ? 1.0 : -1.0;
+        }
+        return utilities;
+    }
+
+    private static long usedHeap() {
+        final var memoryBean = ManagementFactory.getMemoryMXBean();
+        for (var i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+
+    // Fields of a node before the NodeArena, every node generates its legal moves when it is created
+    private static final class ObjectNode {
+        final ObjectNode parent;
+        final Move moveFromParent;
+
+        final Context context;
+        final Game game;
+
+        int visitCount = 0;
+
+        final double[] scoreSums;
+        final double[] pessimisticScores;
+        final double[] optimisticScores;
+
+        final Map<MoveKey, ActionStats> statisticsAMAF = new HashMap<>();
+
+        int proofNumber = -1;
+        int disproofNumber = -1;
+
+        final List<ObjectNode> children = new ArrayList<>();
+        final FastArrayList<Move> unexpandedMoves;
+
+        ObjectNode(final ObjectNode parent, final Move moveFromParent, final Context context) {
+            this.parent = parent;
+            this.moveFromParent = moveFromParent;
+            this.context = context;
+            this.game = context.game();
+
+            final var playerCount = game.players().count();
+            this.scoreSums = new double[playerCount + 1];
+            this.pessimisticScores = new double[playerCount + 1];
+            this.optimisticScores = new double[playerCount + 1];
+
+            this.unexpandedMoves = context.trial().over()
+                    ? new FastArrayList<>()
+                    : new FastArrayList<>(game.moves(context).moves());
+        }
+
+        ObjectNode select() {
+            final int mover = context.state().mover();
+            ObjectNode bestChild = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for (final var child : children) {
+                final double value = child.scoreSums[mover] / child.visitCount
+                        + EXPLORATION * Math.sqrt(Math.log(visitCount) / child.visitCount);
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestChild = child;
+                }
+            }
+            return bestChild;
+        }
+
+        void propagate(final double[] utilities) {
+            for (var node = this; node != null; node = node.parent) {
+                node.visitCount++;
+                for (var p = 1; p < utilities.length; p++) {
+                    node.scoreSums[p] += utilities[p];
+                }
+            }
+        }
+
+        ObjectNode expand() {
+            final var move = unexpandedMoves.remove(unexpandedMoves.size() - 1);
+            final var newContext = new Context(context);
+            newContext.game().apply(newContext, move);
+
+            final var child = new ObjectNode(this, newContext.trial().lastMove(), newContext);
+            children.add(child);
+            return child;
+        }
+    }
+}
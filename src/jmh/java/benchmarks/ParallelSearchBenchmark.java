@@ -0,0 +1,77 @@
+package benchmarks;
+
+import game.Game;
+import java.util.concurrent.TimeUnit;
+import mcts.ExplainableMcts;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.MostVisitedSelectionPolicy;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import other.GameLoader;
+import other.context.Context;
+import other.move.Move;
+import other.trial.Trial;
+
+// Search iterations per second from the initial state with tree parallelization, score bounds and proof numbers
+// (the solver updates lock the nodes of their path), for a growing number of threads. Every invocation searches a
+// new tree for ITERATIONS iterations, the explanation of the selected move is generated as well.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelSearchBenchmark {
+    private static final int ITERATIONS = 20_000;
+
+    @Param({"Hex.lud", "Breakthrough.lud"})
+    public String gameName;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int numThreads;
+
+    private Game game;
+    private Context context;
+    private ExplainableMcts mcts;
+
+    @Setup
+    public void setUp() {
+        game = GameLoader.loadGameFromName(gameName);
+        context = new Context(game, new Trial(game));
+        game.start(context);
+
+        mcts = new ExplainableMcts(
+                new UCB1SelectionPolicy(), new MostVisitedSelectionPolicy(), new UniformPlayoutPolicy(), true, true);
+        mcts.setNumThreads(numThreads);
+        mcts.setParallelization(ExplainableMcts.Parallelization.TREE);
+    }
+
+    @Setup(Level.Invocation)
+    public void newTree() {
+        mcts.initAI(game, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mcts.closeAI();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public Move search() {
+        return mcts.selectAction(game, new Context(context), -1.0, ITERATIONS, -1);
+    }
+}
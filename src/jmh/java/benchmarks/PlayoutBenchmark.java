@@ -0,0 +1,166 @@
+package benchmarks;
+
+import game.Game;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import main.collections.FastArrayList;
+import mcts.ActionStats;
+import mcts.ActionStatsTable;
+import mcts.MoveHistory;
+import mcts.MoveInterner;
+import mcts.NGramStatsTable;
+import mcts.policies.playout.EpsilonGreedyWrapper;
+import mcts.policies.playout.IPlayoutPolicy;
+import mcts.policies.playout.MAST;
+import mcts.policies.playout.NST;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.GameLoader;
+import other.context.Context;
+import other.move.Move;
+import other.playout.PlayoutMoveSelector;
+import other.trial.Trial;
+import search.mcts.MCTS.MoveKey;
+
+// Playouts per second from the initial state: uniform playouts, MAST playouts with the move-id indexed table,
+// MAST playouts with a MoveKey map lookup per legal move and new selectors per playout (the previous implementation)
+// and NST playouts. All of them read statistics gathered from uniform playouts in the setup.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlayoutBenchmark {
+    @Param({"Hex.lud", "Breakthrough.lud"})
+    public String gameName;
+
+    @Param({"1000"})
+    public int statisticsPlayouts;
+
+    private static final double EPSILON = 0.1;
+    private static final int MAX_NGRAM_LENGTH = 3;
+
+    private Context context;
+    private IPlayoutPolicy uniform;
+    private MAST mast;
+    private NST nst;
+    private Map<MoveKey, ActionStats> mapStatistics;
+
+    @Setup
+    public void setUp() {
+        final Game game = GameLoader.loadGameFromName(gameName);
+        context = new Context(game, new Trial(game));
+        game.start(context);
+
+        final int playerCount = game.players().count();
+        final var table = new ActionStatsTable(playerCount, new MoveInterner());
+        final var nGramTable = new NGramStatsTable(playerCount, MAX_NGRAM_LENGTH, table.getMoveInterner());
+        final var history = MoveHistory.forCurrentThread();
+        final int firstIndex = context.trial().numMoves();
+
+        uniform = new UniformPlayoutPolicy();
+        for (var i = 0; i < statisticsPlayouts; i++) {
+            final var playoutContext = new Context(context);
+            uniform.runPlayout(playoutContext);
+            history.fill(playoutContext.trial(), firstIndex, table.getMoveInterner());
+            final var utilities = uniform.getUtilities(playoutContext);
+            table.add(history, firstIndex, utilities);
+            nGramTable.add(history, firstIndex, utilities);
+        }
+
+        mast = new MAST(EPSILON);
+        mast.setGlobalActionStats(table);
+        nst = new NST(MAX_NGRAM_LENGTH, EPSILON);
+        nst.setGlobalNGramStats(nGramTable);
+
+        mapStatistics = new HashMap<>();
+        final var moveInterner = table.getMoveInterner();
+        for (var moveId = 0; moveId < moveInterner.size(); moveId++) {
+            final var stats = new ActionStats(playerCount);
+            stats.visitCount = table.getVisitCount(moveId);
+            for (var p = 1; p <= playerCount; p++) {
+                stats.scoreSums[p] = table.getScoreSum(moveId, p);
+            }
+            mapStatistics.put(new MoveKey(moveInterner.getMove(moveId), 0), stats);
+        }
+    }
+
+    @Benchmark
+    public Trial uniformPlayout() {
+        return uniform.runPlayout(new Context(context));
+    }
+
+    @Benchmark
+    public Trial mastPlayout() {
+        return mast.runPlayout(new Context(context));
+    }
+
+    @Benchmark
+    public Trial nstPlayout() {
+        return nst.runPlayout(new Context(context));
+    }
+
+    @Benchmark
+    public Trial mastMapPlayout() {
+        final var playoutContext = new Context(context);
+        return playoutContext
+                .game()
+                .playout(
+                        playoutContext,
+                        null,
+                        -1.0,
+                        new EpsilonGreedyWrapper(new MapMoveSelector(mapStatistics), EPSILON),
+                        0,
+                        -1,
+                        ThreadLocalRandom.current());
+    }
+
+    private static final class MapMoveSelector extends PlayoutMoveSelector {
+        private final Map<MoveKey, ActionStats> globalActionStats;
+
+        MapMoveSelector(final Map<MoveKey, ActionStats> globalActionStats) {
+            this.globalActionStats = globalActionStats;
+        }
+
+        @Override
+        public Move selectMove(
+                final Context context,
+                final FastArrayList<Move> maybeLegalMoves,
+                final int p,
+                final IsMoveReallyLegal isMoveReallyLegal) {
+            Move bestMove = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            int numBestFound = 0;
+
+            for (final var move : maybeLegalMoves) {
+                if (isMoveReallyLegal.checkMove(move)) {
+                    final var aStats = globalActionStats.get(new MoveKey(move, 0));
+                    final double tempScore = (aStats == null) ? -1.0 : aStats.scoreSums[p] / aStats.visitCount;
+
+                    if (tempScore > bestScore) {
+                        bestScore = tempScore;
+                        bestMove = move;
+                        numBestFound = 1;
+                    } else if (tempScore == bestScore
+                            && ThreadLocalRandom.current().nextInt() % ++numBestFound == 0) {
+                        bestMove = move;
+                    }
+                }
+            }
+            return bestMove;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package benchmarks;
+
+import game.Game;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import mcts.Node;
+import mcts.NodeArena;
+import mcts.policies.playout.IPlayoutPolicy;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.GameLoader;
+import other.RankUtils;
+import other.context.Context;
+import other.trial.Trial;
+
+// Cost of backpropagating score bounds from all terminal nodes of a search tree: full recomputation of every
+// ancestor from all its children (the previous implementation) against the incremental Node.propagateScoreBounds.
+// With hits = first the bounds are reset before every pass, with hits = repeated they are already in place (the
+// common case during a search).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScoreBoundsBenchmark {
+    private static final double WIN_SCORE = 1.0;
+    private static final double LOSS_SCORE = -WIN_SCORE;
+
+    @Param({"Tic-Tac-Toe.lud"})
+    public String gameName;
+
+    @Param({"100000"})
+    public int treeIterations;
+
+    @Param({"first", "repeated"})
+    public String hits;
+
+    private Node root;
+    private List<Node> terminalNodes;
+    private List<double[]> utilities;
+
+    @Setup
+    public void setUp() {
+        final Game game = GameLoader.loadGameFromName(gameName);
+        final Context context = new Context(game, new Trial(game));
+        game.start(context);
+
+        root = growTree(Node.createRoot(new NodeArena(game.players().count()), context), treeIterations);
+
+        terminalNodes = new ArrayList<>();
+        forEachNode(root, node -> {
+            if (node.isTerminal()) {
+                terminalNodes.add(node);
+            }
+        });
+        Collections.shuffle(terminalNodes, new Random(0));
+
+        utilities = new ArrayList<>(terminalNodes.size());
+        for (final var node : terminalNodes) {
+            utilities.add(RankUtils.utilities(node.getContext()));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetBounds() {
+        if ("first".equals(hits)) {
+            forEachNode(root, node -> {
+                final var arena = node.getArena();
+                for (var p = 1; p <= arena.getPlayerCount(); p++) {
+                    arena.setPessimisticScore(node.getId(), p, LOSS_SCORE);
+                    arena.setOptimisticScore(node.getId(), p, WIN_SCORE);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public void full() {
+        for (var i = 0; i < terminalNodes.size(); i++) {
+            propagateScoreBoundsFull(terminalNodes.get(i), utilities.get(i));
+        }
+    }
+
+    @Benchmark
+    public void incremental() {
+        for (var i = 0; i < terminalNodes.size(); i++) {
+            terminalNodes.get(i).propagateScoreBounds(utilities.get(i));
+        }
+    }
+
+    private static Node growTree(final Node root, final int numIterations) {
+        final ISelectionPolicy selectionPolicy = new UCB1SelectionPolicy();
+        final IPlayoutPolicy playoutPolicy = new UniformPlayoutPolicy();
+
+        for (var i = 0; i < numIterations; i++) {
+            Node current = root;
+            while (!current.isTerminal() && current.isExpanded()) {
+                current = current.select(selectionPolicy);
+            }
+
+            final Node newNode = current.expand();
+            newNode.propagate(newNode.simulate(playoutPolicy), 0, 1);
+        }
+        return root;
+    }
+
+    private static void forEachNode(final Node root, final Consumer<Node> action) {
+        final var stack = new ArrayDeque<Node>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final var node = stack.pop();
+            action.accept(node);
+            for (final var child : node.getChildren()) {
+                stack.push(child);
+            }
+        }
+    }
+
+    // The previous implementation - every ancestor is recomputed from all its children
+    private static void propagateScoreBoundsFull(final Node leaf, final double[] utilities) {
+        final var arena = leaf.getArena();
+        final var playerCount = arena.getPlayerCount();
+
+        for (var p = 1; p <= playerCount; p++) {
+            arena.setPessimisticScore(leaf.getId(), p, utilities[p]);
+            arena.setOptimisticScore(leaf.getId(), p, utilities[p]);
+        }
+
+        Node node = leaf.getParent();
+        while (node != null) {
+            final var children = node.getChildren();
+
+            for (var p = 1; p <= playerCount; p++) {
+                final var player = p;
+                final boolean isMover = player == node.getPlayer();
+
+                final var pessimistic = children.stream().mapToDouble(child -> child.getPessimisticScore(player));
+                final var optimistic = children.stream().mapToDouble(child -> child.getOptimisticScore(player));
+
+                if (node.isExpanded()) {
+                    arena.setPessimisticScore(
+                            node.getId(),
+                            player,
+                            (isMover ? pessimistic.max() : pessimistic.min()).orElse(LOSS_SCORE));
+                    arena.setOptimisticScore(
+                            node.getId(),
+                            player,
+                            (isMover ? optimistic.max() : optimistic.min()).orElse(WIN_SCORE));
+                } else if (isMover) {
+                    arena.setPessimisticScore(node.getId(), player, pessimistic.max().orElse(LOSS_SCORE));
+                    arena.setOptimisticScore(node.getId(), player, WIN_SCORE);
+                } else {
+                    arena.setPessimisticScore(node.getId(), player, LOSS_SCORE);
+                    arena.setOptimisticScore(node.getId(), player, optimistic.min().orElse(WIN_SCORE));
+                }
+            }
+            node = node.getParent();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import game.Game;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import mcts.Node;
+import mcts.NodeArena;
+import mcts.policies.playout.IPlayoutPolicy;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.GraveSelectionPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import mcts.policies.selection.ScoreBoundedSelectionPolicy;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.GameLoader;
+import other.context.Context;
+import other.trial.Trial;
+
+// Cost of one selection step at the root of a game with a high branching factor (Gomoku - 225 moves):
+// the batched Node.select against evaluating the children one by one with getNodeValue (the previous implementation).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SelectionBenchmark {
+    @Param({"Gomoku.lud"})
+    public String gameName;
+
+    @Param({"UCB1", "GRAVE"})
+    public String policyName;
+
+    // playouts per child of the root, so that the children have different values
+    @Param({"4"})
+    public int playoutsPerChild;
+
+    private Node root;
+    private ISelectionPolicy selectionPolicy;
+
+    @Setup
+    public void setUp() {
+        final Game game = GameLoader.loadGameFromName(gameName);
+        final Context context = new Context(game, new Trial(game));
+        game.start(context);
+
+        selectionPolicy = new ScoreBoundedSelectionPolicy(
+                "GRAVE".equals(policyName) ? new GraveSelectionPolicy() : new UCB1SelectionPolicy());
+
+        final IPlayoutPolicy playoutPolicy = new UniformPlayoutPolicy();
+        final int flags = selectionPolicy.getBackpropagationFlags();
+
+        root = Node.createRoot(new NodeArena(game.players().count()), context);
+        while (!root.isExpanded()) {
+            final var child = root.expand();
+            child.propagate(child.simulate(playoutPolicy), flags, 1);
+        }
+
+        for (var i = 0; i < (playoutsPerChild - 1) * root.getChildren().size(); i++) {
+            final var child = root.select(selectionPolicy);
+            child.propagate(child.simulate(playoutPolicy), flags, 1);
+        }
+    }
+
+    @Benchmark
+    public Node batched() {
+        return root.select(selectionPolicy);
+    }
+
+    @Benchmark
+    public Node perChild() {
+        Node bestChild = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int numBestFound = 0;
+
+        for (final var childNode : root.getChildren()) {
+            final double childValue = selectionPolicy.getNodeValue(childNode);
+
+            if (childValue > bestValue) {
+                bestValue = childValue;
+                bestChild = childNode;
+                numBestFound = 1;
+            } else if (childValue == bestValue) {
+                final var childAvg = childNode.getAverageScore(root.getPlayer());
+                final var bestAvg =
+                        bestChild == null ? Double.NEGATIVE_INFINITY : bestChild.getAverageScore(root.getPlayer());
+
+                if (childAvg > bestAvg) {
+                    bestChild = childNode;
+                    numBestFound = 1;
+                } else if (childAvg == bestAvg && ThreadLocalRandom.current().nextInt() % ++numBestFound == 0) {
+                    bestChild = childNode;
+                }
+            }
+        }
+        return bestChild;
+    }
+}
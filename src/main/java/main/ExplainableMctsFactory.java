@@ -3,20 +3,69 @@ package main;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.nio.file.Path;
 import mcts.ExplainableMcts;
 import mcts.policies.playout.*;
 import mcts.policies.selection.*;
+import metrics.MetricsRegistry;
+import metrics.PrometheusFileExporter;
+import metrics.PrometheusHttpExporter;
 
 public class ExplainableMctsFactory {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    private static final long METRICS_FILE_INTERVAL_SECONDS = 10;
+
     public static ExplainableMcts fromJson(final String json) throws IOException {
         Config cfg = MAPPER.readValue(json, Config.class);
         ISelectionPolicy selectionPolicy = createSelectionPolicy(cfg);
         ISelectionPolicy finalMoveSelection = createFinalMoveSelectionPolicy(cfg);
         IPlayoutPolicy playoutPolicy = createPlayoutPolicy(cfg);
 
-        return new ExplainableMcts(selectionPolicy, finalMoveSelection, playoutPolicy, cfg.useScoreBounds, cfg.usePNS);
+        final ExplainableMcts mcts = new ExplainableMcts(
+                selectionPolicy, finalMoveSelection, playoutPolicy, cfg.useScoreBounds, cfg.usePNS);
+        mcts.setNumThreads(cfg.numThreads);
+        mcts.setParallelization(createParallelization(cfg));
+        mcts.setReplayContexts(cfg.replayContexts);
+        mcts.setContextCacheSize(cfg.contextCacheSize);
+        mcts.setMaxNodes(cfg.maxNodes);
+        mcts.setTranspositionTableSize(cfg.transpositionTableSize);
+        mcts.setGlobalStatsCapacity(cfg.globalStatsCapacity);
+        mcts.setWarmStartDirectory(cfg.warmStartDirectory);
+        if (cfg.globalStatsDecay >= 0.0 && cfg.globalStatsDecay <= 1.0) {
+            mcts.setGlobalStatsDecay(cfg.globalStatsDecay);
+        } else {
+            System.err.println("WARNING: globalStatsDecay must be in [0, 1], got: " + cfg.globalStatsDecay);
+        }
+        mcts.setPondering(cfg.ponder);
+        mcts.setTimeManagement(cfg.timeManagement);
+        if (cfg.timeBaseShare > 0.0 && cfg.timeBaseShare <= 1.0) {
+            mcts.setTimeBaseShare(cfg.timeBaseShare);
+        } else {
+            System.err.println("WARNING: timeBaseShare must be in (0, 1], got: " + cfg.timeBaseShare);
+        }
+        mcts.setInstrumentation(cfg.instrumentation);
+
+        startMetricsExporters(cfg);
+
+        return mcts;
+    }
+
+    // A new agent is created for every game, the exporters of the shared registry are started only once
+    private static void startMetricsExporters(Config cfg) {
+        final var registry = MetricsRegistry.getDefault();
+
+        if (cfg.metricsFile != null && !cfg.metricsFile.isEmpty()) {
+            registry.addExporter(
+                    "file:" + cfg.metricsFile,
+                    () -> new PrometheusFileExporter(Path.of(cfg.metricsFile), METRICS_FILE_INTERVAL_SECONDS));
+        }
+
+        if (cfg.metricsPort > 0) {
+            registry.addExporter("port:" + cfg.metricsPort, () -> new PrometheusHttpExporter(cfg.metricsPort));
+        } else if (cfg.metricsPort < 0) {
+            System.err.println("WARNING: invalid metrics port: " + cfg.metricsPort);
+        }
     }
 
     private static ISelectionPolicy createSelectionPolicy(Config cfg) {
@@ -73,6 +122,19 @@ public class ExplainableMctsFactory {
             case "nst" -> {
                 return new NST(cfg.maxNGramLength, cfg.epsilon);
             }
+            case "cutoffheuristic" -> {
+                int cutoffDepth = cfg.playoutCutoffDepth;
+                if (cutoffDepth <= 0) {
+                    System.err.println("WARNING: playoutCutoffDepth must be positive, got: " + cutoffDepth);
+                    cutoffDepth = 20;
+                }
+                double temperature = cfg.playoutCutoffTemperature;
+                if (!(temperature > 0.0)) {
+                    System.err.println("WARNING: playoutCutoffTemperature must be positive, got: " + temperature);
+                    temperature = 1.0;
+                }
+                return new CutoffHeuristic(cutoffDepth, temperature);
+            }
             default -> {
                 System.err.println("WARNING: unknown playout policy: " + cfg.playoutPolicy);
                 return new UniformPlayoutPolicy();
@@ -80,6 +142,24 @@ public class ExplainableMctsFactory {
         }
     }
 
+    private static ExplainableMcts.Parallelization createParallelization(Config cfg) {
+        switch (cfg.parallelization.toLowerCase()) {
+            case "root" -> {
+                return ExplainableMcts.Parallelization.ROOT;
+            }
+            case "tree" -> {
+                return ExplainableMcts.Parallelization.TREE;
+            }
+            case "leaf" -> {
+                return ExplainableMcts.Parallelization.LEAF;
+            }
+            default -> {
+                System.err.println("WARNING: unknown parallelization: " + cfg.parallelization);
+                return ExplainableMcts.Parallelization.ROOT;
+            }
+        }
+    }
+
     private static class Config {
         @JsonProperty("useScoreBounds")
         public boolean useScoreBounds;
@@ -107,5 +187,56 @@ public class ExplainableMctsFactory {
 
         @JsonProperty("maxNGramLength")
         public int maxNGramLength;
+
+        @JsonProperty("playoutCutoffDepth")
+        public int playoutCutoffDepth = 20;
+
+        @JsonProperty("playoutCutoffTemperature")
+        public double playoutCutoffTemperature = 1.0;
+
+        @JsonProperty("globalStatsCapacity")
+        public int globalStatsCapacity = 0;
+
+        @JsonProperty("globalStatsDecay")
+        public double globalStatsDecay = 1.0;
+
+        @JsonProperty("warmStartDirectory")
+        public String warmStartDirectory = "";
+
+        @JsonProperty("numThreads")
+        public int numThreads = 1;
+
+        @JsonProperty("parallelization")
+        public String parallelization = "Root";
+
+        @JsonProperty("replayContexts")
+        public boolean replayContexts = false;
+
+        @JsonProperty("contextCacheSize")
+        public int contextCacheSize = 0;
+
+        @JsonProperty("maxNodes")
+        public int maxNodes = 0;
+
+        @JsonProperty("transpositionTableSize")
+        public int transpositionTableSize = 0;
+
+        @JsonProperty("ponder")
+        public boolean ponder = false;
+
+        @JsonProperty("timeManagement")
+        public boolean timeManagement = false;
+
+        @JsonProperty("timeBaseShare")
+        public double timeBaseShare = 1.0;
+
+        @JsonProperty("instrumentation")
+        public boolean instrumentation = false;
+
+        @JsonProperty("metricsFile")
+        public String metricsFile = "";
+
+        @JsonProperty("metricsPort")
+        public int metricsPort = 0;
     }
 }
@@ -0,0 +1,197 @@
+package mcts;
+
+import java.util.Arrays;
+import other.move.Move;
+
+// Global action statistics (MAST): visit count, score sums and mean score of every player, indexed by interned
+// move id (see MoveInterner). The means are cached on every update, so a playout step reads a single array element
+// per legal move. Updates are serialized by the lock of the table. Readers never lock: they read the arrays published
+// last, which are replaced by a grown copy when a new move id does not fit, so a lookup may miss the latest updates.
+// The number of moves with statistics may be limited: when it is reached, the least visited quarter of them is evicted.
+// The limit bounds the entries, not the memory: the arrays are indexed by move id and interned ids are never forgotten,
+// so they grow with the number of distinct moves of the game (they are created again for every game).
+public final class ActionStatsTable {
+    private static final int INITIAL_CAPACITY = 256;
+
+    // mean score of the moves without statistics
+    public static final double NO_SCORE = -1.0;
+
+    // visit counts saturate here, the score sums are scaled down with them so that the mean scores are kept
+    static final int MAX_VISIT_COUNT = Integer.MAX_VALUE;
+
+    private static final class Columns {
+        final int[] visitCounts;
+        // stride of playerCount + 1 values per move id, indexed by player
+        final double[] scoreSums;
+        final double[] meanScores;
+
+        Columns(final int capacity, final int stride) {
+            this.visitCounts = new int[capacity];
+            this.scoreSums = new double[capacity * stride];
+            this.meanScores = new double[capacity * stride];
+            Arrays.fill(meanScores, NO_SCORE);
+        }
+    }
+
+    private final int stride;
+    private final MoveInterner moveInterner;
+    // maximum number of moves with statistics, 0 - no limit
+    private final int maxSize;
+    private volatile Columns columns;
+
+    // guarded by this
+    private int size = 0;
+    private long numEvicted = 0;
+    private final FrequencyEviction eviction = new FrequencyEviction();
+
+    public ActionStatsTable(final int playerCount, final MoveInterner moveInterner) {
+        this(playerCount, moveInterner, 0);
+    }
+
+    public ActionStatsTable(final int playerCount, final MoveInterner moveInterner, final int maxSize) {
+        this.stride = playerCount + 1;
+        this.moveInterner = moveInterner;
+        this.maxSize = Math.max(0, maxSize);
+        this.columns = new Columns(INITIAL_CAPACITY, stride);
+    }
+
+    public MoveInterner getMoveInterner() {
+        return moveInterner;
+    }
+
+    /** Reads */
+    public int getVisitCount(final int moveId) {
+        final var current = columns;
+        return moveId >= 0 && moveId < current.visitCounts.length ? current.visitCounts[moveId] : 0;
+    }
+
+    public double getScoreSum(final int moveId, final int player) {
+        final var current = columns;
+        return moveId >= 0 && moveId < current.visitCounts.length ? current.scoreSums[moveId * stride + player] : 0.0;
+    }
+
+    // NO_SCORE for unknown moves (-1) and moves without statistics
+    public double getMeanScore(final int moveId, final int player) {
+        final var current = columns;
+        return moveId >= 0 && moveId < current.visitCounts.length
+                ? current.meanScores[moveId * stride + player]
+                : NO_SCORE;
+    }
+
+    public int getVisitCount(final Move move) {
+        return getVisitCount(moveInterner.getId(move));
+    }
+
+    public double getMeanScore(final Move move, final int player) {
+        return getMeanScore(moveInterner.getId(move), player);
+    }
+
+    // number of moves with statistics
+    public synchronized int size() {
+        return size;
+    }
+
+    // number of moves whose statistics were evicted or decayed to 0 visits
+    public synchronized long getNumEvicted() {
+        return numEvicted;
+    }
+
+    /** Updates */
+
+    // Adds the utilities of one playout to every move of its history from firstIndex on, under a single lock
+    public synchronized void add(final MoveHistory history, final int firstIndex, final double[] utilities) {
+        for (var i = firstIndex; i < history.getEndIndex(); i++) {
+            addStatistics(history.getMoveId(i), 1, utilities);
+        }
+    }
+
+    // Adds statistics gathered elsewhere (e.g. in earlier games) to the move
+    public synchronized void merge(final int moveId, final int visitCount, final double[] scoreSums) {
+        if (visitCount > 0) {
+            addStatistics(moveId, visitCount, scoreSums);
+        }
+    }
+
+    private void addStatistics(final int moveId, final int visits, final double[] scores) {
+        final var current = ensureCapacity(moveId + 1);
+
+        if (current.visitCounts[moveId] == 0) {
+            if (maxSize > 0 && size >= maxSize) {
+                evict(current, Math.max(1, size / 4));
+            }
+            size++;
+        }
+        final long newCount = (long) current.visitCounts[moveId] + visits;
+        final double scale = newCount > MAX_VISIT_COUNT ? (double) MAX_VISIT_COUNT / newCount : 1.0;
+        final int visitCount = (int) Math.min(newCount, MAX_VISIT_COUNT);
+
+        current.visitCounts[moveId] = visitCount;
+        for (var p = 1; p < stride; p++) {
+            final double scoreSum = (current.scoreSums[moveId * stride + p] + scores[p]) * scale;
+            current.scoreSums[moveId * stride + p] = scoreSum;
+            current.meanScores[moveId * stride + p] = scoreSum / visitCount;
+        }
+    }
+
+    // Scales all visit counts by the factor, keeping the mean scores, so that older playouts weigh less than the
+    // following ones; moves whose visit count drops to 0 lose their statistics
+    public synchronized void decay(final double factor) {
+        final var current = columns;
+        for (var moveId = 0; moveId < current.visitCounts.length; moveId++) {
+            final int visitCount = current.visitCounts[moveId];
+            if (visitCount == 0) {
+                continue;
+            }
+
+            final int decayedCount = (int) (visitCount * factor);
+            if (decayedCount == 0) {
+                removeStatistics(current, moveId);
+                continue;
+            }
+
+            current.visitCounts[moveId] = decayedCount;
+            for (var p = 1; p < stride; p++) {
+                current.scoreSums[moveId * stride + p] = current.meanScores[moveId * stride + p] * decayedCount;
+            }
+        }
+    }
+
+    private void evict(final Columns current, final int numToEvict) {
+        eviction.begin(current.visitCounts, numToEvict);
+        for (var moveId = 0; moveId < current.visitCounts.length; moveId++) {
+            if (eviction.shouldEvict(current.visitCounts[moveId])) {
+                removeStatistics(current, moveId);
+            }
+        }
+    }
+
+    private void removeStatistics(final Columns current, final int moveId) {
+        current.visitCounts[moveId] = 0;
+        for (var p = 1; p < stride; p++) {
+            current.scoreSums[moveId * stride + p] = 0.0;
+            current.meanScores[moveId * stride + p] = NO_SCORE;
+        }
+        size--;
+        numEvicted++;
+    }
+
+    public synchronized void clear() {
+        columns = new Columns(INITIAL_CAPACITY, stride);
+        size = 0;
+    }
+
+    private Columns ensureCapacity(final int numIds) {
+        final var current = columns;
+        if (numIds <= current.visitCounts.length) {
+            return current;
+        }
+
+        final int capacity = Math.max(numIds, 2 * current.visitCounts.length);
+        final var grown = new Columns(capacity, stride);
+        System.arraycopy(current.visitCounts, 0, grown.visitCounts, 0, current.visitCounts.length);
+        System.arraycopy(current.scoreSums, 0, grown.scoreSums, 0, current.scoreSums.length);
+        System.arraycopy(current.meanScores, 0, grown.meanScores, 0, current.meanScores.length);
+        columns = grown;
+        return grown;
+    }
+}
@@ -0,0 +1,53 @@
+package mcts;
+
+import java.util.Arrays;
+
+// Distinct moves (interned ids) of a suffix of a playout history with their numbers of occurrences, grown one move
+// at a time while the AMAF statistics are propagated from the leaf to the root. Every thread reuses its own suffix.
+final class AmafSuffix {
+    private static final ThreadLocal<AmafSuffix> SUFFIXES = ThreadLocal.withInitial(AmafSuffix::new);
+
+    // index into moveIds by move id, -1 if the move is not in the suffix
+    private int[] positions = new int[0];
+
+    int size = 0;
+    int[] moveIds = new int[16];
+    int[] counts = new int[16];
+
+    private AmafSuffix() {}
+
+    static AmafSuffix forCurrentThread() {
+        return SUFFIXES.get();
+    }
+
+    void add(final int moveId) {
+        if (moveId >= positions.length) {
+            final int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(moveId + 1, 2 * oldLength));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+
+        final int position = positions[moveId];
+        if (position >= 0) {
+            counts[position]++;
+            return;
+        }
+
+        if (size == moveIds.length) {
+            moveIds = Arrays.copyOf(moveIds, 2 * size);
+            counts = Arrays.copyOf(counts, 2 * size);
+        }
+        positions[moveId] = size;
+        moveIds[size] = moveId;
+        counts[size] = 1;
+        size++;
+    }
+
+    void clear() {
+        // only the positions of the moves in the suffix are reset
+        for (var i = 0; i < size; i++) {
+            positions[moveIds[i]] = -1;
+        }
+        size = 0;
+    }
+}
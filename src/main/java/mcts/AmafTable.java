@@ -0,0 +1,166 @@
+package mcts;
+
+// AMAF statistics of one node: visit count and score sums of every player, keyed by interned move ids
+// (see MoveInterner) in a primitive open-addressing table with linear probing.
+// Updates are serialized by the lock of the table. Readers never lock: they probe the entries published last,
+// which are replaced by a grown copy when the table gets half full, so a lookup may miss the latest updates.
+public final class AmafTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Arrays of one table size, a slot is found by find and read with the accessors
+    public static final class Entries {
+        // move id + 1, 0 - empty slot
+        private final int[] keys;
+        private final int[] visitCounts;
+        // stride of playerCount + 1 values per slot, indexed by player
+        private final double[] scoreSums;
+        private final int stride;
+        private final int mask;
+
+        private Entries(final int capacity, final int stride) {
+            this.keys = new int[capacity];
+            this.visitCounts = new int[capacity];
+            this.scoreSums = new double[capacity * stride];
+            this.stride = stride;
+            this.mask = capacity - 1;
+        }
+
+        // Returns the slot of the move, or -1 if it has no statistics
+        public int find(final int moveId) {
+            final int key = moveId + 1;
+            for (var slot = hash(moveId) & mask; ; slot = (slot + 1) & mask) {
+                final int slotKey = keys[slot];
+                if (slotKey == key) {
+                    return slot;
+                }
+                if (slotKey == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        public int getVisitCount(final int slot) {
+            return visitCounts[slot];
+        }
+
+        public double getScoreSum(final int slot, final int player) {
+            return scoreSums[slot * stride + player];
+        }
+
+        public int getMoveId(final int slot) {
+            return keys[slot] - 1;
+        }
+
+        public int capacity() {
+            return keys.length;
+        }
+
+        // Returns the slot of the move, claiming an empty one if needed
+        private int findOrInsert(final int moveId) {
+            final int key = moveId + 1;
+            for (var slot = hash(moveId) & mask; ; slot = (slot + 1) & mask) {
+                final int slotKey = keys[slot];
+                if (slotKey == key) {
+                    return slot;
+                }
+                if (slotKey == 0) {
+                    keys[slot] = key;
+                    return slot;
+                }
+            }
+        }
+    }
+
+    private final int stride;
+    private volatile Entries entries;
+
+    // guarded by this
+    private int size = 0;
+
+    public AmafTable(final int playerCount) {
+        this.stride = playerCount + 1;
+        this.entries = new Entries(INITIAL_CAPACITY, stride);
+    }
+
+    private static int hash(final int moveId) {
+        // ids are dense, the multiplication spreads consecutive ids over the table
+        return (moveId * 0x9E3779B9) >>> 7;
+    }
+
+    public Entries getEntries() {
+        return entries;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Adds visits and score sums (indexed by player) of one move
+    public synchronized void add(final int moveId, final int visits, final double[] scores) {
+        var current = entries;
+        if (2 * (size + 1) > current.capacity()) {
+            current = grow(current);
+        }
+
+        final int slot = current.findOrInsert(moveId);
+        if (current.visitCounts[slot] == 0) {
+            size++;
+        }
+        current.visitCounts[slot] += visits;
+        for (var p = 1; p < stride; p++) {
+            current.scoreSums[slot * stride + p] += scores[p];
+        }
+    }
+
+    // Adds the moves of a history suffix, each occurrence counted as one visit scored with utilities
+    synchronized void add(final AmafSuffix suffix, final double[] utilities) {
+        for (var i = 0; i < suffix.size; i++) {
+            var current = entries;
+            if (2 * (size + 1) > current.capacity()) {
+                current = grow(current);
+            }
+
+            final int slot = current.findOrInsert(suffix.moveIds[i]);
+            if (current.visitCounts[slot] == 0) {
+                size++;
+            }
+
+            final int count = suffix.counts[i];
+            current.visitCounts[slot] += count;
+            for (var p = 1; p < stride; p++) {
+                current.scoreSums[slot * stride + p] += count * utilities[p];
+            }
+        }
+    }
+
+    // Adds all statistics of another table
+    public void addAll(final AmafTable other) {
+        final var otherEntries = other.getEntries();
+        final var scores = new double[stride];
+
+        for (var slot = 0; slot < otherEntries.capacity(); slot++) {
+            if (otherEntries.keys[slot] != 0) {
+                for (var p = 1; p < stride; p++) {
+                    scores[p] = otherEntries.getScoreSum(slot, p);
+                }
+                add(otherEntries.getMoveId(slot), otherEntries.getVisitCount(slot), scores);
+            }
+        }
+    }
+
+    private Entries grow(final Entries current) {
+        final var grown = new Entries(2 * current.capacity(), stride);
+
+        for (var slot = 0; slot < current.capacity(); slot++) {
+            if (current.keys[slot] != 0) {
+                final int newSlot = grown.findOrInsert(current.keys[slot] - 1);
+                grown.visitCounts[newSlot] = current.visitCounts[slot];
+                System.arraycopy(current.scoreSums, slot * stride, grown.scoreSums, newSlot * stride, stride);
+            }
+        }
+
+        // published only when complete
+        entries = grown;
+        return grown;
+    }
+}
@@ -0,0 +1,38 @@
+package mcts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import other.context.Context;
+
+// Small LRU cache of the contexts of recently used nodes, used when interior nodes do not store their contexts.
+// Cached contexts are shared between threads and must only be copied, never modified.
+// Entries are keyed by arena id and hold the handle they were cached for: a slot freed by pruning or tree reuse and
+// allocated to another node never returns the old context, and the next put for the slot replaces the stale entry.
+public class ContextCache {
+    private record Entry(Node node, Context context) {}
+
+    private final Map<Integer, Entry> contexts;
+
+    public ContextCache(final int capacity) {
+        this.contexts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized Context get(final Node node) {
+        final var entry = contexts.get(node.getId());
+        return entry != null && entry.node() == node ? entry.context() : null;
+    }
+
+    public synchronized void put(final Node node, final Context context) {
+        contexts.put(node.getId(), new Entry(node, context));
+    }
+
+    // Drops all entries, called whenever subtrees are released so that their nodes and contexts can be collected
+    public synchronized void clear() {
+        contexts.clear();
+    }
+}
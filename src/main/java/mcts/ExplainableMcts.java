@@ -1,9 +1,26 @@
 package mcts;
 
 import game.Game;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import jdk.jfr.EventType;
 import mcts.Node.SimulationResult;
 import mcts.explanations.ExplanationGenerator;
 import mcts.policies.IGlobalActionStatsUser;
@@ -14,17 +31,27 @@ import mcts.policies.selection.ISelectionPolicy;
 import mcts.policies.selection.PNSFinalMoveSelectionPolicy;
 import mcts.policies.selection.ScoreBoundedFinalMoveSelectionPolicy;
 import mcts.policies.selection.ScoreBoundedSelectionPolicy;
+import metrics.MetricsRegistry;
+import metrics.SearchMetrics;
 import other.AI;
 import other.context.Context;
 import other.move.Move;
-import search.mcts.MCTS.MoveKey;
-import search.mcts.MCTS.NGramMoveKey;
 
 public class ExplainableMcts extends AI {
+    public enum Parallelization {
+        // every thread grows its own tree, root statistics are merged at the end
+        ROOT,
+        // all threads share one tree and spread out using virtual loss
+        TREE,
+        // one tree, every expanded node is simulated by all threads at once
+        LEAF
+    }
+
     // -------------------------------------------------------------------------
     private int player = -1;
 
     private Node root;
+    private NodeArena arena;
 
     private final ISelectionPolicy selectionPolicy;
     private ISelectionPolicy finalMoveSelectionPolicy;
@@ -37,18 +64,110 @@ public class ExplainableMcts extends AI {
     private double prevTurnScore = 0.0;
     private Node lastSelectedNode;
 
-    private int totalBranches = 0;
-    private int numOfNodes = 0;
+    private final AtomicInteger totalBranches = new AtomicInteger();
+    private final AtomicInteger numOfNodes = new AtomicInteger();
 
     private String analysisReport;
 
-    // Global tables for MAST/NST (i.e action/n-gram statistics)
+    // labelled with the player, created by initAI (selectAction calls it if it was not called before)
+    private SearchMetrics metrics;
+
+    // Root parallelization - every worker grows its own tree from the same root state
+    // Tree parallelization - all workers share the tree rooted in root
+    // Leaf parallelization - a single worker runs numThreads playouts per iteration
+
+    private int numThreads = 1;
+    private Parallelization parallelization = Parallelization.ROOT;
+    private ExecutorService threadPool;
+    private final List<Thread> workerThreads = new CopyOnWriteArrayList<>();
+    private final List<Node> workerRoots = new ArrayList<>();
+
+    // Context replay - interior nodes do not store contexts, every iteration copies the root context
+    // (or a cached one) and replays the moves of the selected path
+
+    private boolean replayContexts = false;
+    private int contextCacheSize = 0;
+    private ContextCache contextCache;
+
+    // Memory budget - when the tree has more than maxNodes nodes, the least visited subtrees are collapsed into
+    // leaves until it shrinks to 3/4 of the budget. Iterations hold the read lock, pruning holds the write lock.
+
+    private int maxNodes = 0;
+    private final ReadWriteLock treeLock = new ReentrantReadWriteLock();
+    private final AtomicInteger numPrunedSubtrees = new AtomicInteger();
+
+    // Instrumentation - per-phase measurements of the search, null when disabled
+
+    private SearchInstrumentation instrumentation;
+    private SearchInstrumentation.MoveStatistics lastMoveStatistics;
+
+    // Tree reuse - number of moves since initAI that started with a tree from the previous move, on how many of them
+    // the tree was reused (all worker trees with root parallelization) and the number of nodes kept this turn (summed
+    // over the worker trees)
+
+    private int numReuseAttempts = 0;
+    private int numReusedTrees = 0;
+    private int numKeptNodes = 0;
+
+    // Transposition table - number of positions whose statistics can be shared, 0 disables it
+
+    private int transpositionTableSize = 0;
+
+    // Pondering - after a move is returned, a background thread keeps searching the subtree of that move until the
+    // next selectAction call, which reuses the grown subtree through initRoot
+
+    private boolean pondering = false;
+    private ExecutorService ponderThread;
+    private Future<?> ponderTask;
+    private Node ponderRoot;
+    private volatile boolean ponderingStopped = false;
+    private final AtomicInteger numPonderIterations = new AtomicInteger();
+
+    // Time management - a timed move may stop before stopTime at softStopTime, which is updated by the
+    // TimeManager every TIME_CHECK_INTERVAL iterations and once more when it is reached (the TimeManager may extend
+    // it then). Long.MAX_VALUE outside of timed moves (e.g. when pondering).
+
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    // checked before an iteration event is created, the event is disabled unless a recording enables it
+    private static final EventType ITERATION_EVENT_TYPE = EventType.getEventType(IterationEvent.class);
+
+    // statistics updated from the move history of every playout
+    private static final int HISTORY_FLAGS = BackpropagationFlags.AMAF_STATS
+            | BackpropagationFlags.GLOBAL_ACTION_STATS
+            | BackpropagationFlags.GLOBAL_NGRAM_ACTION_STATS;
 
-    private final Map<MoveKey, ActionStats> globalActionStats = new HashMap<>();
-    private final Map<NGramMoveKey, ActionStats> globalNGramStats = new HashMap<>();
+    private static final int GLOBAL_STATS_FLAGS =
+            BackpropagationFlags.GLOBAL_ACTION_STATS | BackpropagationFlags.GLOBAL_NGRAM_ACTION_STATS;
+
+    private TimeManager timeManager;
+    private double timeBaseShare = 1.0;
+    private volatile long softStopTime = Long.MAX_VALUE;
+    private final LongAdder playoutLengthSum = new LongAdder();
+    private final LongAdder numPlayouts = new LongAdder();
+
+    // visit counts of the root moves summed over the worker trees, indexed by interned move id and zero between
+    // updates, one array per search thread
+    private final ThreadLocal<int[]> rootMoveVisits = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Global tables for MAST/NST (i.e action/n-gram statistics), shared by all workers
+
+    // created with the arena, the move ids of the tables are interned by it
+    private ActionStatsTable globalActionStats;
+    private NGramStatsTable globalNGramStats;
 
     private int maxNGramLength = 0;
 
+    // Maximum number of entries of each global table (0 - no limit), the least visited entries are evicted.
+    // Between turns the visit counts are multiplied by the decay factor (1 - no decay), so that the statistics of
+    // earlier positions weigh less and rare entries drop out.
+    private int globalStatsCapacity = 0;
+    private double globalStatsDecay = 1.0;
+
+    // Directory of the statistics files of the global tables kept between games ("" - not kept)
+    private String warmStartDirectory = "";
+    private WarmStartStore warmStartStore;
+
     // -------------------------------------------------------------------------
 
     public ExplainableMcts(
@@ -73,12 +192,7 @@ public class ExplainableMcts extends AI {
 
         this.playoutPolicy = playoutPolicy;
 
-        if (this.playoutPolicy instanceof IGlobalActionStatsUser globalActionStatsPlayoutPolicy) {
-            globalActionStatsPlayoutPolicy.setGlobalActionStats(globalActionStats);
-        }
-
         if (this.playoutPolicy instanceof IGlobalNGramStatsUser globalNGramStatsPlayoutPolicy) {
-            globalNGramStatsPlayoutPolicy.setGlobalNGramStats(globalNGramStats);
             this.maxNGramLength = globalNGramStatsPlayoutPolicy.getMaxNGramLength();
         }
 
@@ -102,6 +216,9 @@ public class ExplainableMcts extends AI {
             final double maxSeconds,
             final int maxIterations,
             final int maxDepth) {
+        final var searchEvent = new SearchEvent();
+        searchEvent.begin();
+        final long searchStart = System.nanoTime();
 
         // We'll respect any limitations on max seconds and max iterations (don't care
         // about max depth)
@@ -109,86 +226,762 @@ public class ExplainableMcts extends AI {
                 (maxSeconds > 0.0) ? System.currentTimeMillis() + (long) (maxSeconds * 1000L) : Long.MAX_VALUE;
         final int maxIts = (maxIterations >= 0) ? maxIterations : Integer.MAX_VALUE;
         // final int maxIts = 1000;
-        int numIterations = 0;
+        final AtomicInteger numIterations = new AtomicInteger();
+        numPrunedSubtrees.set(0);
+
+        // the arena, the global tables and the metrics are created by initAI, which closeAI undoes
+        if (arena == null) {
+            initAI(game, context.state().mover());
+        }
+
+        stopPondering();
+        final int ponderIterations = numPonderIterations.getAndSet(0);
+
+        if (warmStartStore != null) {
+            // read before the search threads start, they only merge its entries as they intern the moves
+            warmStartStore.load();
+        }
+
+        if (globalStatsDecay < 1.0) {
+            globalActionStats.decay(globalStatsDecay);
+            globalNGramStats.decay(globalStatsDecay);
+        }
+
+        if (instrumentation != null) {
+            // the ponder iterations are not part of the search of this move
+            instrumentation.reset();
+            instrumentation.startAllocationCount(getSearchThreadIds());
+        }
 
+        final int previousReuseAttempts = numReuseAttempts;
+        final int previouslyReusedTrees = numReusedTrees;
+        numKeptNodes = 0;
         initRoot(context);
 
-        while (numIterations < maxIts
-                && System.currentTimeMillis() < stopTime
-                && !wantsInterrupt
-                && !root.isSolved(this.player)
-                && root.getProofNumber() != 0) {
-            Node current = root;
-            int currentPlayer = this.player;
-
-            while (!current.isTerminal() && current.isExpanded() && !current.isSolved(currentPlayer)) {
-                current = current.select(this.selectionPolicy);
-                currentPlayer = current.getPlayer();
-            }
+        if (isOverNodeBudget()) {
+            pruneTree();
+        }
 
-            final Node newNode = current.expand();
+        if (timeManager != null && maxSeconds > 0.0) {
+            playoutLengthSum.reset();
+            numPlayouts.reset();
+            softStopTime = timeManager.startMove(System.currentTimeMillis(), maxSeconds);
+        }
 
-            if (newNode != current) {
-                updateAverageBranchingFactor(newNode);
-            }
+        if (numThreads > 1 && parallelization == Parallelization.ROOT) {
+            searchRootParallel(stopTime, maxIts, numIterations);
+        } else if (numThreads > 1 && parallelization == Parallelization.TREE) {
+            searchTreeParallel(stopTime, maxIts, numIterations);
+        } else {
+            search(root, stopTime, maxIts, numIterations);
+        }
 
-            final SimulationResult simRes = newNode.simulate(playoutPolicy);
-            newNode.propagate(simRes, this.backpropagationFlags, this.player);
-            propagateGlobalStats(simRes);
+        if (instrumentation != null) {
+            instrumentation.endAllocationCount(getSearchThreadIds());
+        }
 
-            numIterations++;
+        if (softStopTime != Long.MAX_VALUE) {
+            final long numResults = numPlayouts.sum();
+            timeManager.endMove(
+                    System.currentTimeMillis(), numResults > 0 ? (double) playoutLengthSum.sum() / numResults : -1.0);
+            softStopTime = Long.MAX_VALUE;
         }
 
         this.lastSelectedNode = root.select(this.finalMoveSelectionPolicy);
         this.lastMoveValue = lastSelectedNode.getAverageScore(this.player);
         final Move selectedMove = lastSelectedNode.getMoveFromParent();
 
+        final long searchNanos = System.nanoTime() - searchStart;
+        final int numNodes = getTreeSize();
+        metrics.recordMove(
+                searchNanos,
+                numIterations.get(),
+                Math.max(0, numNodes - numKeptNodes),
+                numReuseAttempts - previousReuseAttempts,
+                numReusedTrees - previouslyReusedTrees,
+                numKeptNodes,
+                numNodes,
+                root.isSolved(this.player) || root.getProofNumber() == 0);
+
+        final long explanationStart = System.nanoTime();
         final String explanation = generateExplanation();
+        metrics.recordExplanation(System.nanoTime() - explanationStart);
+
+        String moveStatistics = "";
+        if (instrumentation != null) {
+            lastMoveStatistics = instrumentation.getMoveStatistics(
+                    numIterations.get(),
+                    arena.getNumAllocatedSlots(),
+                    root.getNumStatisticsAMAF(),
+                    globalActionStats.size(),
+                    globalNGramStats.size());
+            moveStatistics = lastMoveStatistics + "\n";
+        }
+
+        String globalStatistics = "";
+        if ((backpropagationFlags & GLOBAL_STATS_FLAGS) != 0) {
+            globalStatistics = String.format(
+                    " Global statistics: %d actions, %d n-grams (%d evicted).",
+                    globalActionStats.size(),
+                    globalNGramStats.size(),
+                    globalActionStats.getNumEvicted() + globalNGramStats.getNumEvicted());
+        }
 
         this.analysisReport = String.format(
-                "[%s] Performed %d iterations. Previous turn score: %.4f.\n%s\n",
-                friendlyName, numIterations, prevTurnScore, explanation);
+                "[%s] Performed %d iterations (%d more while pondering). Tree size: %d nodes (%d subtrees pruned). Tree reuse: kept %d nodes (tree reused in %d of %d searches).%s Previous turn score: %.4f.\n%s\n",
+                friendlyName,
+                numIterations.get(),
+                ponderIterations,
+                numNodes,
+                numPrunedSubtrees.get(),
+                numKeptNodes,
+                numReusedTrees,
+                numReuseAttempts,
+                globalStatistics,
+                prevTurnScore,
+                moveStatistics + explanation);
+
+        if (searchEvent.shouldCommit()) {
+            searchEvent.agent = friendlyName;
+            searchEvent.iterations = numIterations.get();
+            searchEvent.ponderIterations = ponderIterations;
+            searchEvent.nodes = numNodes;
+            searchEvent.keptNodes = numKeptNodes;
+            searchEvent.selectedMove = String.valueOf(selectedMove);
+            searchEvent.moveValue = lastMoveValue;
+            searchEvent.solved = root.isSolved(this.player) || root.getProofNumber() == 0;
+            searchEvent.commit();
+        }
 
         // this.prevTurnScore = root.getAverageScore(this.player);
         this.prevTurnScore = lastSelectedNode.getAverageScore(this.player);
+
+        if (pondering) {
+            startPondering(selectedMove);
+        }
         return selectedMove;
     }
 
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(final int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public Parallelization getParallelization() {
+        return parallelization;
+    }
+
+    public void setParallelization(final Parallelization parallelization) {
+        this.parallelization = parallelization;
+    }
+
+    public boolean getReplayContexts() {
+        return replayContexts;
+    }
+
+    public void setReplayContexts(final boolean replayContexts) {
+        this.replayContexts = replayContexts;
+    }
+
+    public int getContextCacheSize() {
+        return contextCacheSize;
+    }
+
+    public void setContextCacheSize(final int contextCacheSize) {
+        this.contextCacheSize = Math.max(0, contextCacheSize);
+        this.contextCache = this.contextCacheSize > 0 ? new ContextCache(this.contextCacheSize) : null;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    // 0 means no limit
+    public void setMaxNodes(final int maxNodes) {
+        this.maxNodes = Math.max(0, maxNodes);
+    }
+
+    public int getTranspositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    // takes effect with the next initAI
+    public void setTranspositionTableSize(final int transpositionTableSize) {
+        this.transpositionTableSize = Math.max(0, transpositionTableSize);
+    }
+
+    public int getGlobalStatsCapacity() {
+        return globalStatsCapacity;
+    }
+
+    // takes effect with the next initAI. Limits the number of entries with statistics, the MAST arrays still grow with
+    // the number of distinct moves of the game (see ActionStatsTable)
+    public void setGlobalStatsCapacity(final int globalStatsCapacity) {
+        this.globalStatsCapacity = Math.max(0, globalStatsCapacity);
+    }
+
+    public double getGlobalStatsDecay() {
+        return globalStatsDecay;
+    }
+
+    public void setGlobalStatsDecay(final double globalStatsDecay) {
+        this.globalStatsDecay = Math.clamp(globalStatsDecay, 0.0, 1.0);
+    }
+
+    public String getWarmStartDirectory() {
+        return warmStartDirectory;
+    }
+
+    // takes effect with the next initAI
+    public void setWarmStartDirectory(final String warmStartDirectory) {
+        this.warmStartDirectory = warmStartDirectory != null ? warmStartDirectory : "";
+    }
+
+    public boolean getPondering() {
+        return pondering;
+    }
+
+    public void setPondering(final boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    public boolean getInstrumentation() {
+        return instrumentation != null;
+    }
+
+    public void setInstrumentation(final boolean instrumentation) {
+        this.instrumentation = instrumentation ? new SearchInstrumentation() : null;
+    }
+
+    // Measurements of the search of the last selected move, null if instrumentation is disabled
+    public SearchInstrumentation.MoveStatistics getLastMoveStatistics() {
+        return lastMoveStatistics;
+    }
+
+    public boolean getTimeManagement() {
+        return timeManager != null;
+    }
+
+    public void setTimeManagement(final boolean timeManagement) {
+        this.timeManager = timeManagement ? new TimeManager(timeBaseShare) : null;
+    }
+
+    public double getTimeBaseShare() {
+        return timeBaseShare;
+    }
+
+    // Share of the thinking time a move is planned to use, in (0, 1], see TimeManager
+    public void setTimeBaseShare(final double timeBaseShare) {
+        this.timeBaseShare = Math.clamp(timeBaseShare, Double.MIN_VALUE, 1.0);
+        if (this.timeManager != null) {
+            this.timeManager.setBaseShare(this.timeBaseShare);
+        }
+    }
+
+    private boolean isTreeParallel() {
+        return numThreads > 1 && parallelization == Parallelization.TREE;
+    }
+
+    private boolean isLeafParallel() {
+        return numThreads > 1 && parallelization == Parallelization.LEAF;
+    }
+
+    private void search(
+            final Node searchRoot, final long stopTime, final int maxIts, final AtomicInteger numIterations) {
+        final boolean useVirtualLoss = isTreeParallel();
+        final int propagationFlags = useVirtualLoss
+                ? this.backpropagationFlags | BackpropagationFlags.VIRTUAL_LOSS
+                : this.backpropagationFlags;
+
+        while (!wantsInterrupt
+                && !ponderingStopped
+                && !searchRoot.isSolved(this.player)
+                && searchRoot.getProofNumber() != 0
+                && hasTimeLeft(stopTime, numIterations)) {
+            // the budget is shared by all threads, each iteration is claimed before it runs
+            final int iteration = claimIteration(numIterations, maxIts);
+            if (iteration < 0) {
+                break;
+            }
+
+            if (maxNodes > 0) {
+                treeLock.readLock().lock();
+            }
+            try {
+                final boolean sampled = SearchInstrumentation.isSampled(iteration);
+                runIteration(searchRoot, useVirtualLoss, propagationFlags, sampled);
+            } finally {
+                if (maxNodes > 0) {
+                    treeLock.readLock().unlock();
+                }
+            }
+
+            if (isOverNodeBudget()) {
+                pruneTree();
+            }
+
+            if ((iteration + 1) % TIME_CHECK_INTERVAL == 0 && softStopTime != Long.MAX_VALUE) {
+                updateSoftStopTime(numIterations.get());
+            }
+        }
+    }
+
+    // Returns the index of the claimed iteration, or -1 once maxIts iterations were claimed
+    private static int claimIteration(final AtomicInteger numIterations, final int maxIts) {
+        int claimed;
+        do {
+            claimed = numIterations.get();
+            if (claimed >= maxIts) {
+                return -1;
+            }
+        } while (!numIterations.compareAndSet(claimed, claimed + 1));
+        return claimed;
+    }
+
+    // The soft deadline is checked with the TimeManager before the search stops on it, which may extend it
+    private boolean hasTimeLeft(final long stopTime, final AtomicInteger numIterations) {
+        final long now = System.currentTimeMillis();
+        if (now >= stopTime) {
+            return false;
+        }
+        if (now < softStopTime) {
+            return true;
+        }
+
+        updateSoftStopTime(numIterations.get());
+        return now < softStopTime;
+    }
+
+    private void updateSoftStopTime(final int numIterations) {
+        // visit counts of the two most visited root moves, summed over the worker trees
+        int bestVisits = 0;
+        int secondVisits = 0;
+
+        if (workerRoots.isEmpty()) {
+            for (final var child : root.getChildren()) {
+                final int visits = child.getVisitCount();
+                if (visits > bestVisits) {
+                    secondVisits = bestVisits;
+                    bestVisits = visits;
+                } else if (visits > secondVisits) {
+                    secondVisits = visits;
+                }
+            }
+        } else {
+            int[] visitCounts = rootMoveVisits.get();
+            for (final var workerRoot : workerRoots) {
+                for (final var child : workerRoot.getChildren()) {
+                    final int moveId = child.getMoveId();
+                    if (moveId >= visitCounts.length) {
+                        visitCounts = Arrays.copyOf(visitCounts, Math.max(moveId + 1, 2 * visitCounts.length));
+                        rootMoveVisits.set(visitCounts);
+                    }
+                    visitCounts[moveId] += child.getVisitCount();
+                }
+            }
+
+            // every move is counted at its first occurrence, which clears its entry for the next update
+            for (final var workerRoot : workerRoots) {
+                for (final var child : workerRoot.getChildren()) {
+                    final int visits = visitCounts[child.getMoveId()];
+                    visitCounts[child.getMoveId()] = 0;
+
+                    if (visits > bestVisits) {
+                        secondVisits = bestVisits;
+                        bestVisits = visits;
+                    } else if (visits > secondVisits) {
+                        secondVisits = visits;
+                    }
+                }
+            }
+        }
+
+        // every leaf-parallel iteration adds one visit per thread to the root moves
+        final long numVisits = isLeafParallel() ? (long) numIterations * numThreads : numIterations;
+        softStopTime = timeManager.update(System.currentTimeMillis(), numVisits, bestVisits, secondVisits);
+    }
+
+    // sampled - the phases of this iteration are timed by the instrumentation and recorded as a JFR event
+    private void runIteration(
+            final Node searchRoot, final boolean useVirtualLoss, final int propagationFlags, final boolean sampled) {
+        final var instrumentation = this.instrumentation;
+        final boolean timed = sampled && instrumentation != null;
+        final long start = timed ? System.nanoTime() : 0L;
+
+        final IterationEvent iterationEvent = sampled && ITERATION_EVENT_TYPE.isEnabled() ? new IterationEvent() : null;
+        if (iterationEvent != null) {
+            iterationEvent.begin();
+        }
+
+        Node current = searchRoot;
+        int currentPlayer = this.player;
+
+        while (!current.isTerminal() && current.isExpanded() && !current.isSolved(currentPlayer)) {
+            current = current.select(this.selectionPolicy);
+            currentPlayer = current.getPlayer();
+
+            if (useVirtualLoss) {
+                current.addVirtualLoss();
+            }
+        }
+
+        final long selectionEnd = timed ? System.nanoTime() : 0L;
+
+        // the state of the selected node is needed only from here on
+        final Context nodeContext = replayContexts ? current.createContext(contextCache) : null;
+
+        // legal moves are generated only for nodes that are expanded, which are counted for the branching factor
+        if (!current.isTerminal()
+                && !current.isSolved(current.getPlayer())
+                && current.generateLegalMoves(nodeContext)) {
+            updateAverageBranchingFactor(current);
+        }
+
+        final Node newNode = current.expand(nodeContext, useVirtualLoss);
+        final long expansionEnd = timed ? System.nanoTime() : 0L;
+
+        final List<SimulationResult> simResults = isLeafParallel()
+                ? newNode.simulate(playoutPolicy, nodeContext, getThreadPool(), numThreads)
+                : List.of(newNode.simulate(playoutPolicy, nodeContext));
+        final long simulationEnd = timed ? System.nanoTime() : 0L;
+
+        // AMAF statistics are updated below, from the same move history as the global statistics
+        newNode.propagate(simResults, propagationFlags & ~BackpropagationFlags.AMAF_STATS, this.player, searchRoot);
+
+        if ((propagationFlags & HISTORY_FLAGS) != 0) {
+            final var history = MoveHistory.forCurrentThread();
+            int firstIndex = searchRoot.getTreeRoot().getDepth();
+            if ((propagationFlags & BackpropagationFlags.GLOBAL_NGRAM_ACTION_STATS) != 0) {
+                // n-grams ending after the search root may start up to maxNGramLength - 1 moves before it
+                firstIndex = Math.max(0, Math.min(firstIndex, searchRoot.getDepth() - maxNGramLength + 1));
+            }
+
+            for (final var simRes : simResults) {
+                history.fill(simRes.context().trial(), firstIndex, arena.getMoveInterner());
+                if ((propagationFlags & BackpropagationFlags.AMAF_STATS) != 0) {
+                    newNode.propagateScoreAMAF(history, simRes.utilities());
+                }
+                propagateGlobalStats(history, simRes.utilities(), searchRoot);
+            }
+        }
+
+        if (instrumentation != null || metrics.isEnabled()) {
+            for (final var simRes : simResults) {
+                final int playoutLength = simRes.context().trial().numMoves() - newNode.getDepth();
+                if (metrics.isEnabled()) {
+                    metrics.recordPlayout(playoutLength);
+                }
+                if (instrumentation != null) {
+                    instrumentation.addPlayout(playoutLength);
+                }
+            }
+        }
+
+        if (instrumentation != null) {
+            if (timed) {
+                instrumentation.addSample(start, selectionEnd, expansionEnd, simulationEnd, System.nanoTime());
+            }
+            instrumentation.addIteration(current.getDepth() - searchRoot.getDepth(), newNode != current);
+        }
+
+        if (iterationEvent != null && iterationEvent.shouldCommit()) {
+            iterationEvent.depth = current.getDepth() - searchRoot.getDepth();
+            iterationEvent.expanded = newNode != current;
+            iterationEvent.playoutLength = simResults.getFirst().context().trial().numMoves() - newNode.getDepth();
+            iterationEvent.commit();
+        }
+
+        if (softStopTime != Long.MAX_VALUE) {
+            // game length estimate for the time management, from the playouts that reached the end of the game (a
+            // playout policy with a cutoff stops most of them early)
+            for (final var simRes : simResults) {
+                if (simRes.context().trial().over()) {
+                    playoutLengthSum.add(simRes.context().trial().numMoves() - searchRoot.getDepth());
+                    numPlayouts.increment();
+                }
+            }
+        }
+    }
+
+    private boolean isOverNodeBudget() {
+        return maxNodes > 0 && arena.getNumNodeSlots() > maxNodes;
+    }
+
+    // Collapses the least visited subtrees of all trees in the arena, until they fit in 3/4 of the budget
+    private void pruneTree() {
+        treeLock.writeLock().lock();
+        try {
+            // another worker may have pruned the tree while this one was waiting
+            if (!isOverNodeBudget()) {
+                return;
+            }
+
+            // the path to the subtree searched by the ponder thread has to stay in the tree
+            final Set<Node> ponderPath = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (var node = ponderRoot; node != null; node = node.getParent()) {
+                ponderPath.add(node);
+            }
+
+            final List<Node> candidates = new ArrayList<>();
+            final var stack = new ArrayDeque<Node>(workerRoots.isEmpty() ? List.of(root) : workerRoots);
+
+            while (!stack.isEmpty()) {
+                for (final var child : stack.pop().getChildren()) {
+                    // solved subtrees are kept, their bounds and proofs could not be recomputed after collapsing
+                    if (!child.getChildren().isEmpty()
+                            && !child.isSolved(this.player)
+                            && child.getProofNumber() != 0
+                            && child.getDisproofNumber() != 0
+                            && !ponderPath.contains(child)) {
+                        candidates.add(child);
+                    }
+                    stack.push(child);
+                }
+            }
+
+            candidates.sort(Comparator.comparingInt(Node::getVisitCount));
+
+            // the cached contexts would keep the collapsed nodes alive
+            if (contextCache != null) {
+                contextCache.clear();
+            }
+
+            final int targetNodes = maxNodes - maxNodes / 4;
+            for (final var node : candidates) {
+                if (arena.getNumNodeSlots() <= targetNodes) {
+                    break;
+                }
+
+                // skip nodes already freed together with a collapsed ancestor
+                if (arena.contains(node)) {
+                    node.collapse(this.player);
+                    numPrunedSubtrees.incrementAndGet();
+                }
+            }
+        } finally {
+            treeLock.writeLock().unlock();
+        }
+    }
+
+    private void searchRootParallel(final long stopTime, final int maxIts, final AtomicInteger numIterations) {
+        final List<Future<?>> workers = new ArrayList<>();
+        for (var i = 1; i < workerRoots.size(); i++) {
+            final var workerRoot = workerRoots.get(i);
+            workers.add(getThreadPool().submit(() -> search(workerRoot, stopTime, maxIts, numIterations)));
+        }
+
+        // the calling thread acts as the first worker
+        search(workerRoots.getFirst(), stopTime, maxIts, numIterations);
+        awaitWorkers(workers);
+
+        root = Node.mergeRoots(workerRoots);
+    }
+
+    private void searchTreeParallel(final long stopTime, final int maxIts, final AtomicInteger numIterations) {
+        final List<Future<?>> workers = new ArrayList<>();
+        for (var i = 1; i < numThreads; i++) {
+            workers.add(getThreadPool().submit(() -> search(root, stopTime, maxIts, numIterations)));
+        }
+
+        // the calling thread acts as the first worker
+        search(root, stopTime, maxIts, numIterations);
+        awaitWorkers(workers);
+    }
+
+    private void startPondering(final Move selectedMove) {
+        if (workerRoots.isEmpty()) {
+            ponderRoot = lastSelectedNode;
+        } else {
+            // the merged root shares the children of the worker trees, so one of the worker trees is grown instead
+            ponderRoot = null;
+            for (final var workerRoot : workerRoots) {
+                ponderRoot = workerRoot.getChildByMove(selectedMove);
+                if (ponderRoot != null) {
+                    break;
+                }
+            }
+        }
+
+        if (ponderRoot == null || ponderRoot.isTerminal()) {
+            ponderRoot = null;
+            return;
+        }
+
+        final var searchRoot = ponderRoot;
+        ponderTask = getPonderThread()
+                .submit(() -> search(searchRoot, Long.MAX_VALUE, Integer.MAX_VALUE, numPonderIterations));
+    }
+
+    private void stopPondering() {
+        if (ponderTask == null) {
+            return;
+        }
+
+        ponderingStopped = true;
+        try {
+            awaitWorkers(List.of(ponderTask));
+        } finally {
+            ponderTask = null;
+            ponderRoot = null;
+            ponderingStopped = false;
+        }
+    }
+
+    private ExecutorService getPonderThread() {
+        if (ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(runnable -> {
+                final var thread = new Thread(runnable, String.format("%s ponder", friendlyName));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return ponderThread;
+    }
+
+    private static void awaitWorkers(final List<Future<?>> workers) {
+        try {
+            for (final var worker : workers) {
+                worker.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        }
+    }
+
+    private ExecutorService getThreadPool() {
+        if (threadPool == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            threadPool = Executors.newFixedThreadPool(numThreads - 1, runnable -> {
+                final var thread = new Thread(
+                        runnable, String.format("%s worker %d", friendlyName, threadCount.incrementAndGet()));
+                thread.setDaemon(true);
+                workerThreads.add(thread);
+                return thread;
+            });
+        }
+        return threadPool;
+    }
+
+    // The calling thread and the worker threads run all parts of the search of a move
+    private long[] getSearchThreadIds() {
+        final var threads = List.copyOf(workerThreads);
+        final var threadIds = new long[threads.size() + 1];
+        threadIds[0] = Thread.currentThread().threadId();
+        for (var i = 0; i < threads.size(); i++) {
+            threadIds[i + 1] = threads.get(i).threadId();
+        }
+        return threadIds;
+    }
+
     @Override
     public void initAI(final Game game, final int playerID) {
+        stopPondering();
         this.player = playerID;
+        this.metrics = new SearchMetrics(MetricsRegistry.getDefault(), this.friendlyName, playerID);
+
+        if (this.timeManager != null) {
+            this.timeManager.reset(game.players().count());
+        }
 
         if (this.finalMoveSelectionPolicy instanceof PNSFinalMoveSelectionPolicy pnsPolicy) {
             pnsPolicy.setProofPlayer(playerID);
         }
 
         this.root = null;
+        this.arena = createArena(game.players().count());
+        this.globalActionStats =
+                new ActionStatsTable(game.players().count(), arena.getMoveInterner(), globalStatsCapacity);
+        if (this.playoutPolicy instanceof IGlobalActionStatsUser globalActionStatsPlayoutPolicy) {
+            globalActionStatsPlayoutPolicy.setGlobalActionStats(globalActionStats);
+        }
+        this.globalNGramStats = new NGramStatsTable(
+                game.players().count(), Math.max(1, maxNGramLength), arena.getMoveInterner(), globalStatsCapacity);
+        if (this.playoutPolicy instanceof IGlobalNGramStatsUser globalNGramStatsPlayoutPolicy) {
+            globalNGramStatsPlayoutPolicy.setGlobalNGramStats(globalNGramStats);
+        }
+        this.warmStartStore = null;
+        if (!warmStartDirectory.isEmpty() && (backpropagationFlags & GLOBAL_STATS_FLAGS) != 0) {
+            try {
+                // the file is only mapped here, it is read by the first selectAction
+                this.warmStartStore = WarmStartStore.open(
+                        Path.of(warmStartDirectory),
+                        game,
+                        globalActionStats,
+                        globalNGramStats,
+                        globalStatsDecay,
+                        globalStatsCapacity);
+            } catch (IOException e) {
+                System.err.println("WARNING: failed to open statistics file: " + e.getMessage());
+            }
+        }
         this.lastActionHistorySize = 0;
         this.lastMoveValue = 0.0;
         this.prevTurnScore = 0.0;
         this.lastSelectedNode = null;
-        this.totalBranches = 0;
-        this.numOfNodes = 0;
+        this.totalBranches.set(0);
+        this.numOfNodes.set(0);
+        this.numPonderIterations.set(0);
+        this.numReuseAttempts = 0;
+        this.numReusedTrees = 0;
+        this.numKeptNodes = 0;
         this.analysisReport = null;
+        this.workerRoots.clear();
 
-        this.globalActionStats.clear();
-        this.globalNGramStats.clear();
+        if (this.contextCache != null) {
+            this.contextCache.clear();
+        }
     }
 
     @Override
     public void closeAI() {
+        stopPondering();
+
+        if (this.warmStartStore != null) {
+            try {
+                this.warmStartStore.save();
+            } catch (IOException e) {
+                System.err.println("WARNING: failed to save statistics file: " + e.getMessage());
+            }
+            this.warmStartStore = null;
+        }
         this.player = -1;
         this.root = null;
+        this.arena = null;
         this.lastActionHistorySize = 0;
         this.lastMoveValue = 0.0;
         this.prevTurnScore = 0.0;
         this.lastSelectedNode = null;
-        this.totalBranches = 0;
-        this.numOfNodes = 0;
+        this.totalBranches.set(0);
+        this.numOfNodes.set(0);
+        this.numPonderIterations.set(0);
+        this.numReuseAttempts = 0;
+        this.numReusedTrees = 0;
+        this.numKeptNodes = 0;
         this.analysisReport = null;
+        this.workerRoots.clear();
+
+        if (this.contextCache != null) {
+            this.contextCache.clear();
+        }
 
-        this.globalActionStats.clear();
-        this.globalNGramStats.clear();
+        this.globalActionStats = null;
+        this.globalNGramStats = null;
+
+        if (this.threadPool != null) {
+            this.threadPool.shutdownNow();
+            this.threadPool = null;
+            this.workerThreads.clear();
+        }
+
+        if (this.ponderThread != null) {
+            this.ponderThread.shutdownNow();
+            this.ponderThread = null;
+        }
     }
 
     @Override
@@ -220,127 +1013,174 @@ public class ExplainableMcts extends AI {
         return explanationGenerator.generateExplanation();
     }
 
-    private void initRoot(final Context context) {
-        // Tree reuse
-        if (root != null) {
-            // get action history for current state
-            final List<Move> actionHistory = context.trial().generateCompleteMovesList();
+    private NodeArena createArena(final int playerCount) {
+        final var newArena = new NodeArena(playerCount);
 
-            // calculate number of moves we need to apply from previous root
-            int offsetActionToTraverse = actionHistory.size() - lastActionHistorySize;
+        // root-parallel workers have to grow independent trees
+        if (transpositionTableSize > 0 && !(numThreads > 1 && parallelization == Parallelization.ROOT)) {
+            newArena.setTranspositionTable(new TranspositionTable(newArena, transpositionTableSize));
+        }
+        return newArena;
+    }
 
-            if (offsetActionToTraverse < 0) {
-                root = null;
-            }
+    private void initRoot(final Context context) {
+        // get action history for current state
+        final List<Move> actionHistory = context.trial().generateCompleteMovesList();
 
-            // apply moves to find new root
-            while (offsetActionToTraverse > 0) {
-                final Move move = actionHistory.get(actionHistory.size() - offsetActionToTraverse);
-                root = root.getChildByMove(move);
+        // the merged root only holds copies of the worker statistics, the worker trees are reused instead
+        if (!workerRoots.isEmpty()) {
+            if (root != workerRoots.getFirst()) {
+                root.releaseMergedRoot();
+            }
+            root = workerRoots.getFirst();
+        }
 
-                if (root == null) {
-                    break;
+        // the ponder thread may still replay from the root context after the move is returned
+        final Context rootContext = pondering ? new Context(context) : context;
+        final boolean hadTree = root != null;
+
+        if (numThreads > 1 && parallelization == Parallelization.ROOT) {
+            // counted as one reuse if every worker tree was reused
+            boolean allReused = true;
+
+            for (var i = 0; i < numThreads; i++) {
+                final var oldRoot = i < workerRoots.size() ? workerRoots.get(i) : null;
+                // every worker needs its own copy of the root state
+                final var workerContext = i == 0 ? rootContext : new Context(context);
+                var newRoot = reuseTree(oldRoot, actionHistory, workerContext);
+                if (newRoot == null) {
+                    newRoot = Node.createRoot(arena, workerContext);
+                    allReused = false;
                 }
 
-                --offsetActionToTraverse;
+                if (i < workerRoots.size()) {
+                    workerRoots.set(i, newRoot);
+                } else {
+                    workerRoots.add(newRoot);
+                }
             }
-        }
-
-        if (root == null) {
-            root = new Node(null, null, context);
-            updateAverageBranchingFactor(root);
+            // the number of threads was reduced
+            for (var i = numThreads; i < workerRoots.size(); i++) {
+                arena.releaseTree(workerRoots.get(i).getId());
+            }
+            workerRoots.subList(numThreads, workerRoots.size()).clear();
+            root = workerRoots.getFirst();
+            countReuse(hadTree, allReused);
         } else {
-            root.detachFromParent();
+            // switched away from root parallelization, only the first worker tree is kept
+            for (var i = 1; i < workerRoots.size(); i++) {
+                arena.releaseTree(workerRoots.get(i).getId());
+            }
+            workerRoots.clear();
+
+            final var newRoot = reuseTree(root, actionHistory, rootContext);
+            root = newRoot != null ? newRoot : Node.createRoot(arena, rootContext);
+            countReuse(hadTree, newRoot != null);
         }
 
         lastActionHistorySize = context.trial().numMoves();
     }
 
-    private void propagateGlobalStats(final SimulationResult simRes) {
-        if ((this.backpropagationFlags & BackpropagationFlags.GLOBAL_ACTION_STATS) != 0) {
-            propagateGlobalActionStats(simRes);
+    // Number of nodes in the search trees, the merged root-parallel root only holds copies of the worker root children
+    private int getTreeSize() {
+        if (workerRoots.isEmpty()) {
+            return arena.countSubtree(root.getId());
         }
 
-        if ((this.backpropagationFlags & BackpropagationFlags.GLOBAL_NGRAM_ACTION_STATS) != 0) {
-            propagateGlobalNGramStats(simRes);
+        int treeSize = 0;
+        for (final var workerRoot : workerRoots) {
+            treeSize += arena.countSubtree(workerRoot.getId());
         }
+        return treeSize;
     }
 
-    private void propagateGlobalActionStats(final SimulationResult simRes) {
-        // System.err.println("Updating global stats");
-
-        final var leafContext = simRes.context();
-        final var utilities = simRes.utilities();
-
-        final var playerCount = root.getGame().players().count();
-        final var fullActionHistory = leafContext.trial().generateCompleteMovesList();
-
-        final var firstActionIndex = root.getContext().trial().numMoves();
-        final var actionHistory = fullActionHistory.subList(firstActionIndex, fullActionHistory.size());
-
-        for (final var act : actionHistory) {
-            final var moveKey = new MoveKey(act, 0);
-            if (!globalActionStats.containsKey(moveKey)) {
-                globalActionStats.put(moveKey, new ActionStats(playerCount));
-            }
-            final var stats = globalActionStats.get(moveKey);
-
-            stats.visitCount++;
-            for (var p = 1; p <= playerCount; p++) {
-                stats.scoreSums[p] += utilities[p];
+    // Tree reuse - counted once per move, however many worker trees there are
+    private void countReuse(final boolean attempted, final boolean reused) {
+        if (attempted) {
+            numReuseAttempts++;
+            if (reused) {
+                numReusedTrees++;
             }
         }
+    }
 
-        if (this.playoutPolicy instanceof IGlobalActionStatsUser globalActionStatsPlayoutPolicy) {
-            globalActionStatsPlayoutPolicy.setGlobalActionStats(globalActionStats);
+    // Returns the node of the current state in the tree of oldRoot, which becomes its new root, or null if it is not in
+    // the tree (the old tree is released then). The kept nodes are added to numKeptNodes.
+    private Node reuseTree(final Node oldRoot, final List<Move> actionHistory, final Context context) {
+        Node newRoot = oldRoot;
+
+        // the cached contexts would keep the released nodes alive
+        if (contextCache != null) {
+            contextCache.clear();
         }
-        // System.err.println("MCTS: map size: " + globalActionStats.size());
-    }
 
-    private void propagateGlobalNGramStats(final SimulationResult simRes) {
-        // System.err.println("updating global ngram stats");
+        // Tree reuse
+        if (newRoot != null) {
+            // calculate number of moves we need to apply from previous root
+            int offsetActionToTraverse = actionHistory.size() - lastActionHistorySize;
 
-        final var leafContext = simRes.context();
-        final var utilities = simRes.utilities();
+            if (offsetActionToTraverse < 0) {
+                arena.releaseTree(newRoot.getId());
+                newRoot = null;
+            }
 
-        final var playerCount = root.getGame().players().count();
-        final var fullActionHistory = leafContext.trial().generateCompleteMovesList();
-        final var firstActionIndex = root.getContext().trial().numMoves();
+            // apply moves to find new root
+            while (offsetActionToTraverse > 0) {
+                final Move move = actionHistory.get(actionHistory.size() - offsetActionToTraverse);
+                final Node child = newRoot.getChildByMove(move);
 
-        for (var i = firstActionIndex; i < fullActionHistory.size(); i++) {
-            for (var j = Math.max(0, i - maxNGramLength + 1); j <= i; j++) {
-                final var n = i - j + 1;
-                final var nGram = new Move[n];
-                for (var k = 0; k < n; k++) {
-                    nGram[k] = fullActionHistory.get(j + k);
+                if (child == null) {
+                    arena.releaseTree(newRoot.getId());
+                    newRoot = null;
+                    break;
                 }
 
-                final var nGramKey = new NGramMoveKey(nGram, 0);
-                if (!globalNGramStats.containsKey(nGramKey)) {
-                    globalNGramStats.put(nGramKey, new ActionStats(playerCount));
-                }
-                final var stats = globalNGramStats.get(nGramKey);
+                // the old root and the subtrees of the siblings can not be reached anymore
+                newRoot.releaseChildrenExcept(child);
+                arena.moveRoot(newRoot.getId(), child.getId());
+                newRoot = child;
 
-                stats.visitCount++;
-                for (var p = 1; p <= playerCount; p++) {
-                    stats.scoreSums[p] += utilities[p];
-                }
+                --offsetActionToTraverse;
             }
         }
 
-        if (this.playoutPolicy instanceof IGlobalNGramStatsUser globalNGramStatsPlayoutPolicy) {
-            globalNGramStatsPlayoutPolicy.setGlobalNGramStats(globalNGramStats);
+        if (newRoot != null) {
+            newRoot.detachFromParent(context);
+            numKeptNodes += arena.countSubtree(newRoot.getId());
         }
 
-        // System.err.println("MCTS: map size: " + globalNGramStats.size());
+        return newRoot;
+    }
+
+    private void propagateGlobalStats(final MoveHistory history, final double[] utilities, final Node searchRoot) {
+        if ((this.backpropagationFlags & BackpropagationFlags.GLOBAL_ACTION_STATS) != 0) {
+            propagateGlobalActionStats(history, utilities, searchRoot);
+        }
+
+        if ((this.backpropagationFlags & BackpropagationFlags.GLOBAL_NGRAM_ACTION_STATS) != 0) {
+            propagateGlobalNGramStats(history, utilities, searchRoot);
+        }
+    }
+
+    private void propagateGlobalActionStats(
+            final MoveHistory history, final double[] utilities, final Node searchRoot) {
+        // a single lock per playout
+        globalActionStats.add(history, searchRoot.getDepth(), utilities);
+    }
+
+    private void propagateGlobalNGramStats(final MoveHistory history, final double[] utilities, final Node searchRoot) {
+        // n-grams ending after the search root, a single lock per playout
+        globalNGramStats.add(history, searchRoot.getDepth(), utilities);
     }
 
-    private void updateAverageBranchingFactor(final Node newNode) {
-        totalBranches += newNode.getUnexpandedMoves().size();
-        numOfNodes++;
+    private void updateAverageBranchingFactor(final Node expandedNode) {
+        totalBranches.addAndGet(expandedNode.getNumLegalMoves());
+        numOfNodes.incrementAndGet();
     }
 
     private double getAverageBranchingFactor() {
-        return (double) totalBranches / numOfNodes;
+        // no node is expanded before the first iteration
+        final int expandedNodes = numOfNodes.get();
+        return expandedNodes > 0 ? (double) totalBranches.get() / expandedNodes : 0.0;
     }
 }
@@ -0,0 +1,94 @@
+package mcts;
+
+// Chooses the entries evicted from a full global statistics table: exactly the given number of entries with the lowest
+// visit counts. The threshold count is found with a quickselect over a copy of the counts instead of sorting them.
+// Entries with 0 visits are empty and never chosen. Reused by every eviction of a table, guarded by the lock of the
+// table.
+final class FrequencyEviction {
+    private int[] counts = new int[0];
+
+    // all entries below the threshold are evicted, the remaining quota is taken from the entries at the threshold
+    private int threshold = 0;
+    private int quotaAtThreshold = 0;
+
+    void begin(final int[] visitCounts, final int numToEvict) {
+        if (counts.length < visitCounts.length) {
+            counts = new int[visitCounts.length];
+        }
+
+        int size = 0;
+        for (final int visitCount : visitCounts) {
+            if (visitCount > 0) {
+                counts[size++] = visitCount;
+            }
+        }
+
+        if (numToEvict <= 0 || size == 0) {
+            threshold = 0;
+            quotaAtThreshold = 0;
+            return;
+        }
+        if (numToEvict >= size) {
+            threshold = Integer.MAX_VALUE;
+            quotaAtThreshold = Integer.MAX_VALUE;
+            return;
+        }
+
+        threshold = select(counts, size, numToEvict - 1);
+        int numBelow = 0;
+        for (var i = 0; i < size; i++) {
+            if (counts[i] < threshold) {
+                numBelow++;
+            }
+        }
+        quotaAtThreshold = numToEvict - numBelow;
+    }
+
+    boolean shouldEvict(final int visitCount) {
+        if (visitCount <= 0) {
+            return false;
+        }
+
+        if (visitCount < threshold) {
+            return true;
+        }
+        if (visitCount == threshold && quotaAtThreshold > 0) {
+            quotaAtThreshold--;
+            return true;
+        }
+        return false;
+    }
+
+    // Returns the k-th smallest of the first size values, reordering them
+    private static int select(final int[] values, final int size, final int k) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            final int pivot = values[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int value = values[i];
+                    values[i++] = values[j];
+                    values[j--] = value;
+                }
+            }
+
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+}
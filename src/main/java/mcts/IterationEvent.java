@@ -0,0 +1,29 @@
+package mcts;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder event of one MCTS iteration. Disabled by default, and even then only every
+// SearchInstrumentation.SAMPLE_INTERVAL-th iteration is recorded.
+@Name("ludii.mcts.Iteration")
+@Label("MCTS Iteration")
+@Category({"Ludii", "MCTS"})
+@Description("Sampled iteration of ExplainableMcts")
+@Enabled(false)
+@StackTrace(false)
+public final class IterationEvent extends jdk.jfr.Event {
+    @Label("Depth")
+    @Description("Number of moves from the search root to the selected node")
+    public int depth;
+
+    @Label("Expanded")
+    @Description("A new node was added to the tree")
+    public boolean expanded;
+
+    @Label("Playout Length")
+    public int playoutLength;
+}
@@ -0,0 +1,53 @@
+package mcts;
+
+import java.util.Arrays;
+import other.trial.Trial;
+
+// Interned ids (see MoveInterner) of the moves of a playout from a given index of its trial on. The history is read
+// from the trial once per playout and shared by all statistics updaters (AMAF, MAST and NST), none of them builds
+// the move list of the trial again. Every thread reuses its own buffer.
+public final class MoveHistory {
+    private static final ThreadLocal<MoveHistory> HISTORIES = ThreadLocal.withInitial(MoveHistory::new);
+
+    private int firstIndex = 0;
+    private int endIndex = 0;
+    private int[] moveIds = new int[64];
+
+    private MoveHistory() {}
+
+    public static MoveHistory forCurrentThread() {
+        return HISTORIES.get();
+    }
+
+    // Replaces the buffered history with the moves of the trial from firstIndex on
+    public MoveHistory fill(final Trial trial, final int firstIndex, final MoveInterner moveInterner) {
+        final int endIndex = trial.numMoves();
+        final int size = Math.max(0, endIndex - firstIndex);
+
+        if (size > moveIds.length) {
+            moveIds = Arrays.copyOf(moveIds, Math.max(size, 2 * moveIds.length));
+        }
+        for (var i = 0; i < size; i++) {
+            moveIds[i] = moveInterner.intern(trial.getMove(firstIndex + i));
+        }
+
+        this.firstIndex = firstIndex;
+        this.endIndex = firstIndex + size;
+        return this;
+    }
+
+    // index (in the trial) of the first buffered move
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    // index (in the trial) after the last buffered move
+    public int getEndIndex() {
+        return endIndex;
+    }
+
+    // id of the move with the given index in the trial, firstIndex <= index < endIndex
+    public int getMoveId(final int index) {
+        return moveIds[index - firstIndex];
+    }
+}
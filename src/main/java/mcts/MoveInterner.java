@@ -0,0 +1,182 @@
+package mcts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import other.move.Move;
+
+// Maps every distinct move of a game to a dense int id, so that statistics keyed by moves can be stored in primitive
+// tables. Ids are never reused within a game. Moves are the same if they make the same decision, like for the MoveKey
+// of the AMAF and MAST statistics: same mover, from, to and state, where from and to are unordered for moves that are
+// not oriented; pass and swap moves only by their type and mover.
+// Lookups probe an open-addressing table without locking or allocating, so they can be done for every legal move of
+// every playout step. New ids are assigned under the lock of the interner.
+public final class MoveInterner {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final VarHandle MOVE_ARRAY = MethodHandles.arrayElementVarHandle(Move[].class);
+
+    // Notified of every new id under the lock of the interner, before the id is returned by intern (and of the ids
+    // assigned before the listener was set, when it is set)
+    public interface NewMoveListener {
+        void moveInterned(int moveId, Move move);
+
+        // Whether there are statistics for the move that it would get once interned, called without the lock of the
+        // interner by any thread
+        boolean hasStatistics(Move move);
+    }
+
+    private static final class Table {
+        // first move interned with the id of the slot, null - empty slot; published after the id
+        final Move[] moves;
+        final int[] ids;
+        final int mask;
+
+        Table(final int capacity) {
+            this.moves = new Move[capacity];
+            this.ids = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void insert(final Move move, final int id) {
+            var slot = hash(move) & mask;
+            while (moves[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            ids[slot] = id;
+            MOVE_ARRAY.setRelease(moves, slot, move);
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    // move of every id, written before the id is published in the table
+    private volatile Move[] movesById = new Move[64];
+
+    // written under the lock, read without it by size
+    private volatile int nextId = 0;
+
+    // written under the lock, read without it by getKnownId
+    private volatile NewMoveListener newMoveListener = null;
+
+    // The listener is notified of the moves interned so far as well, in the order of their ids
+    public synchronized void setNewMoveListener(final NewMoveListener newMoveListener) {
+        this.newMoveListener = newMoveListener;
+        if (newMoveListener != null) {
+            for (var id = 0; id < nextId; id++) {
+                newMoveListener.moveInterned(id, movesById[id]);
+            }
+        }
+    }
+
+    // Returns the id of the move, assigning a new one on its first occurrence
+    public int intern(final Move move) {
+        final int id = getId(move);
+        return id >= 0 ? id : assignId(move);
+    }
+
+    // Returns the id of the move, assigning a new one only if the listener has statistics for it (-1 otherwise), so that
+    // lookups of moves that were never played pick up the statistics of earlier games without interning every move
+    public int getKnownId(final Move move) {
+        final int id = getId(move);
+        if (id >= 0) {
+            return id;
+        }
+
+        final var listener = newMoveListener;
+        return listener != null && listener.hasStatistics(move) ? assignId(move) : -1;
+    }
+
+    private synchronized int assignId(final Move move) {
+        final int id = getId(move);
+        if (id >= 0) {
+            return id;
+        }
+
+        if (nextId == movesById.length) {
+            movesById = Arrays.copyOf(movesById, 2 * nextId);
+        }
+        movesById[nextId] = move;
+
+        // kept at most half full
+        if (2 * (nextId + 1) > table.moves.length) {
+            final var newTable = new Table(2 * table.moves.length);
+            for (var i = 0; i < nextId; i++) {
+                newTable.insert(movesById[i], i);
+            }
+            table = newTable;
+        }
+        table.insert(move, nextId);
+
+        final int newId = nextId++;
+        if (newMoveListener != null) {
+            newMoveListener.moveInterned(newId, move);
+        }
+        return newId;
+    }
+
+    // Returns the id of the move, or -1 if it was never interned
+    public int getId(final Move move) {
+        final var current = table;
+        for (var slot = hash(move) & current.mask; ; slot = (slot + 1) & current.mask) {
+            final var slotMove = (Move) MOVE_ARRAY.getAcquire(current.moves, slot);
+            if (slotMove == null) {
+                return -1;
+            }
+            if (isSameMove(slotMove, move)) {
+                return current.ids[slot];
+            }
+        }
+    }
+
+    // Returns the first move interned with the given id
+    public Move getMove(final int moveId) {
+        return movesById[moveId];
+    }
+
+    public int size() {
+        return nextId;
+    }
+
+    private static int hash(final Move move) {
+        int result = move.mover();
+        if (move.isPass()) {
+            result = 31 * result + 1297;
+        } else if (move.isSwap()) {
+            result = 31 * result + 587;
+        } else {
+            final int from = move.fromNonDecision();
+            final int to = move.toNonDecision();
+            // symmetric in from and to, which are unordered for moves that are not oriented
+            result = 31 * result + (from + to);
+            result = 31 * result + move.stateNonDecision();
+        }
+        // spread the low bits used by the table
+        final int mixed = result * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    private static boolean isSameMove(final Move a, final Move b) {
+        if (a == b) {
+            return true;
+        }
+        if (a.mover() != b.mover()) {
+            return false;
+        }
+        if (a.isPass() || b.isPass()) {
+            return a.isPass() && b.isPass();
+        }
+        if (a.isSwap() || b.isSwap()) {
+            return a.isSwap() && b.isSwap();
+        }
+        if (a.stateNonDecision() != b.stateNonDecision()) {
+            return false;
+        }
+
+        final boolean sameOrder = a.fromNonDecision() == b.fromNonDecision() && a.toNonDecision() == b.toNonDecision();
+        if (sameOrder || a.isOrientedMove() || b.isOrientedMove()) {
+            return sameOrder;
+        }
+        return a.fromNonDecision() == b.toNonDecision() && a.toNonDecision() == b.fromNonDecision();
+    }
+}
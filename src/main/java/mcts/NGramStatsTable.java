@@ -0,0 +1,342 @@
+package mcts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import other.move.Move;
+
+// Global n-gram statistics (NST): visit count, score sums and mean score of every player for every sequence of up to
+// maxNGramLength consecutive moves, in a primitive open-addressing table keyed by the interned move ids (see
+// MoveInterner) of the sequence. N-grams are given newest move first, so the hash of an n-gram is the hash of its
+// (n-1)-gram extended by one older move: scoring a move against all n-gram lengths costs one multiply and one probe
+// per length. A probe compares the stored ids, so different n-grams never share statistics.
+// Updates are serialized by the lock of the table. Readers never lock: they probe the entries published last,
+// which are replaced by a grown copy when the table gets half full, so a lookup may miss the latest updates.
+// The number of n-grams may be limited: when it is reached, the least visited quarter of them is evicted.
+public final class NGramStatsTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // visit counts saturate like those of the action statistics
+    private static final int MAX_VISIT_COUNT = ActionStatsTable.MAX_VISIT_COUNT;
+
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // hash of the empty n-gram
+    public static final long EMPTY_HASH = 0L;
+
+    // Hash of the n-gram extended by one older move
+    public static long extend(final long hash, final int moveId) {
+        return (hash + moveId + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    // Arrays of one table size, a slot is found by find and read with the accessors
+    public static final class Entries {
+        // n-gram length, 0 - empty slot; published after the rest of the key
+        private final int[] lengths;
+        private final long[] hashes;
+        // maxNGramLength ids per slot, newest move first
+        private final int[] moveIds;
+        private final int[] visitCounts;
+        // stride of playerCount + 1 values per slot, indexed by player
+        private final double[] scoreSums;
+        private final double[] meanScores;
+        private final int maxNGramLength;
+        private final int stride;
+        private final int mask;
+
+        private Entries(final int capacity, final int maxNGramLength, final int stride) {
+            this.lengths = new int[capacity];
+            this.hashes = new long[capacity];
+            this.moveIds = new int[capacity * maxNGramLength];
+            this.visitCounts = new int[capacity];
+            this.scoreSums = new double[capacity * stride];
+            this.meanScores = new double[capacity * stride];
+            this.maxNGramLength = maxNGramLength;
+            this.stride = stride;
+            this.mask = capacity - 1;
+        }
+
+        // Returns the slot of the n-gram of the first n ids (newest move first) with the given hash, or -1 if it has
+        // no statistics
+        public int find(final int[] ids, final int n, final long hash) {
+            for (var slot = index(hash); ; slot = (slot + 1) & mask) {
+                final int length = (int) INT_ARRAY.getAcquire(lengths, slot);
+                if (length == 0) {
+                    return -1;
+                }
+                if (length == n && hashes[slot] == hash && hasIds(slot, ids, n)) {
+                    return slot;
+                }
+            }
+        }
+
+        public int getVisitCount(final int slot) {
+            return visitCounts[slot];
+        }
+
+        public double getScoreSum(final int slot, final int player) {
+            return scoreSums[slot * stride + player];
+        }
+
+        public double getMeanScore(final int slot, final int player) {
+            return meanScores[slot * stride + player];
+        }
+
+        // n-gram length, 0 for empty slots
+        public int getLength(final int slot) {
+            return (int) INT_ARRAY.getAcquire(lengths, slot);
+        }
+
+        // id of the k-th newest move of the n-gram in the slot
+        public int getMoveId(final int slot, final int k) {
+            return moveIds[slot * maxNGramLength + k];
+        }
+
+        public int capacity() {
+            return lengths.length;
+        }
+
+        private boolean hasIds(final int slot, final int[] ids, final int n) {
+            final int offset = slot * maxNGramLength;
+            for (var k = 0; k < n; k++) {
+                if (moveIds[offset + k] != ids[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Claims an empty slot for an n-gram that is not in the table, readers find it once it is published
+        private int insert(final int[] ids, final int n, final long hash) {
+            var slot = index(hash);
+            while (lengths[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            System.arraycopy(ids, 0, moveIds, slot * maxNGramLength, n);
+            return slot;
+        }
+
+        private void publish(final int slot, final int n) {
+            INT_ARRAY.setRelease(lengths, slot, n);
+        }
+
+        private int index(final long hash) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    private final int stride;
+    private final int maxNGramLength;
+    private final MoveInterner moveInterner;
+    // maximum number of n-grams, 0 - no limit
+    private final int maxSize;
+    private volatile Entries entries;
+
+    // guarded by this
+    private int size = 0;
+    private long numEvicted = 0;
+    private final int[] updateIds;
+    private final FrequencyEviction eviction = new FrequencyEviction();
+
+    public NGramStatsTable(final int playerCount, final int maxNGramLength, final MoveInterner moveInterner) {
+        this(playerCount, maxNGramLength, moveInterner, 0);
+    }
+
+    public NGramStatsTable(
+            final int playerCount, final int maxNGramLength, final MoveInterner moveInterner, final int maxSize) {
+        this.stride = playerCount + 1;
+        this.maxNGramLength = maxNGramLength;
+        this.moveInterner = moveInterner;
+        this.maxSize = Math.max(0, maxSize);
+        this.entries = new Entries(INITIAL_CAPACITY, maxNGramLength, stride);
+        this.updateIds = new int[maxNGramLength];
+    }
+
+    public MoveInterner getMoveInterner() {
+        return moveInterner;
+    }
+
+    public int getMaxNGramLength() {
+        return maxNGramLength;
+    }
+
+    // Entries published last, all reads of one lookup should use the same entries
+    public Entries getEntries() {
+        return entries;
+    }
+
+    // number of n-grams with statistics
+    public synchronized int size() {
+        return size;
+    }
+
+    // number of n-grams whose statistics were evicted or decayed to 0 visits
+    public synchronized long getNumEvicted() {
+        return numEvicted;
+    }
+
+    // Visit count of an n-gram given in playing order (like NGramMoveKey), 0 if it has no statistics
+    public int getVisitCount(final Move[] nGram) {
+        final var current = entries;
+        final int slot = find(current, nGram);
+        return slot >= 0 ? current.getVisitCount(slot) : 0;
+    }
+
+    // Mean score of an n-gram given in playing order (like NGramMoveKey), NO_SCORE if it has no statistics
+    public double getMeanScore(final Move[] nGram, final int player) {
+        final var current = entries;
+        final int slot = find(current, nGram);
+        return slot >= 0 ? current.getMeanScore(slot, player) : ActionStatsTable.NO_SCORE;
+    }
+
+    private int find(final Entries current, final Move[] nGram) {
+        final int n = nGram.length;
+        if (n == 0 || n > maxNGramLength) {
+            return -1;
+        }
+
+        final var ids = new int[n];
+        long hash = EMPTY_HASH;
+        for (var k = 0; k < n; k++) {
+            ids[k] = moveInterner.getId(nGram[n - k - 1]);
+            if (ids[k] < 0) {
+                return -1;
+            }
+            hash = extend(hash, ids[k]);
+        }
+        return current.find(ids, n, hash);
+    }
+
+    /** Updates */
+
+    // Adds the utilities of one playout to every n-gram ending at a move of its history from firstIndex on,
+    // the n-grams may start before firstIndex down to the first move of the history
+    public synchronized void add(final MoveHistory history, final int firstIndex, final double[] utilities) {
+        for (var i = firstIndex; i < history.getEndIndex(); i++) {
+            long hash = EMPTY_HASH;
+
+            for (var n = 1; n <= maxNGramLength && i - n + 1 >= history.getFirstIndex(); n++) {
+                updateIds[n - 1] = history.getMoveId(i - n + 1);
+                hash = extend(hash, updateIds[n - 1]);
+                addStatistics(updateIds, n, hash, 1, utilities);
+            }
+        }
+    }
+
+    // Adds statistics gathered elsewhere (e.g. in earlier games) to the n-gram of the first n ids, newest move first
+    public synchronized void merge(final int[] ids, final int n, final int visitCount, final double[] scoreSums) {
+        if (visitCount <= 0 || n == 0 || n > maxNGramLength) {
+            return;
+        }
+
+        long hash = EMPTY_HASH;
+        for (var k = 0; k < n; k++) {
+            hash = extend(hash, ids[k]);
+        }
+        addStatistics(ids, n, hash, visitCount, scoreSums);
+    }
+
+    private void addStatistics(final int[] ids, final int n, final long hash, final int visits, final double[] scores) {
+        var current = entries;
+        int slot = current.find(ids, n, hash);
+        final boolean isNew = slot < 0;
+        if (isNew) {
+            current = ensureCapacity(size + 1);
+            slot = current.insert(ids, n, hash);
+            size++;
+        }
+
+        final long newCount = (long) current.visitCounts[slot] + visits;
+        final double scale = newCount > MAX_VISIT_COUNT ? (double) MAX_VISIT_COUNT / newCount : 1.0;
+        final int visitCount = (int) Math.min(newCount, MAX_VISIT_COUNT);
+
+        current.visitCounts[slot] = visitCount;
+        for (var p = 1; p < stride; p++) {
+            final double scoreSum = (current.scoreSums[slot * stride + p] + scores[p]) * scale;
+            current.scoreSums[slot * stride + p] = scoreSum;
+            current.meanScores[slot * stride + p] = scoreSum / visitCount;
+        }
+
+        // new n-grams are published with their first statistics
+        if (isNew) {
+            current.publish(slot, n);
+        }
+    }
+
+    // Scales all visit counts by the factor, keeping the mean scores, so that older playouts weigh less than the
+    // following ones; n-grams whose visit count drops to 0 are removed and the table shrinks with them
+    public synchronized void decay(final double factor) {
+        rebuild(entries, factor, 0, INITIAL_CAPACITY);
+    }
+
+    public synchronized void clear() {
+        entries = new Entries(INITIAL_CAPACITY, maxNGramLength, stride);
+        size = 0;
+    }
+
+    // kept at most half full
+    private Entries ensureCapacity(final int newSize) {
+        final var current = entries;
+        if (maxSize > 0 && newSize > maxSize) {
+            // the space of the evicted n-grams is kept for the following ones
+            return rebuild(current, 1.0, Math.max(1, size / 4), current.capacity());
+        }
+        if (2 * newSize <= current.capacity()) {
+            return current;
+        }
+        return rebuild(current, 1.0, 0, 2 * current.capacity());
+    }
+
+    // Copies the n-grams into new entries of at least the given capacity, without the evicted ones and with their
+    // visit counts scaled by the factor; n-grams whose visit count drops to 0 are left out as well
+    private Entries rebuild(final Entries current, final double factor, final int numToEvict, final int minCapacity) {
+        if (numToEvict > 0) {
+            eviction.begin(current.visitCounts, numToEvict);
+        }
+
+        final var visitCounts = new int[current.capacity()];
+        int newSize = 0;
+        for (var slot = 0; slot < current.capacity(); slot++) {
+            final int visitCount = current.visitCounts[slot];
+            if (current.lengths[slot] != 0 && !(numToEvict > 0 && eviction.shouldEvict(visitCount))) {
+                visitCounts[slot] = (int) (visitCount * factor);
+                if (visitCounts[slot] > 0) {
+                    newSize++;
+                }
+            }
+        }
+
+        int capacity = minCapacity;
+        while (capacity < 2 * (newSize + 1)) {
+            capacity *= 2;
+        }
+
+        final var rebuilt = new Entries(capacity, maxNGramLength, stride);
+        final var ids = new int[maxNGramLength];
+        for (var slot = 0; slot < current.capacity(); slot++) {
+            final int visitCount = visitCounts[slot];
+            if (visitCount == 0) {
+                continue;
+            }
+
+            final int n = current.lengths[slot];
+            System.arraycopy(current.moveIds, slot * maxNGramLength, ids, 0, n);
+            final int newSlot = rebuilt.insert(ids, n, current.hashes[slot]);
+            rebuilt.visitCounts[newSlot] = visitCount;
+            if (visitCount == current.visitCounts[slot]) {
+                System.arraycopy(current.scoreSums, slot * stride, rebuilt.scoreSums, newSlot * stride, stride);
+            } else {
+                for (var p = 1; p < stride; p++) {
+                    rebuilt.scoreSums[newSlot * stride + p] = current.meanScores[slot * stride + p] * visitCount;
+                }
+            }
+            System.arraycopy(current.meanScores, slot * stride, rebuilt.meanScores, newSlot * stride, stride);
+            rebuilt.publish(newSlot, n);
+        }
+
+        numEvicted += size - newSize;
+        size = newSize;
+        entries = rebuilt;
+        return rebuilt;
+    }
+}
@@ -1,71 +1,167 @@
 package mcts;
 
 import game.Game;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import main.collections.FastArrayList;
 import mcts.policies.backpropagation.BackpropagationFlags;
 import mcts.policies.playout.IPlayoutPolicy;
+import mcts.policies.selection.ChildBatch;
 import mcts.policies.selection.ISelectionPolicy;
-import other.RankUtils;
 import other.context.Context;
 import other.move.Move;
 import search.mcts.MCTS.MoveKey;
 
-public class Node {
+// Handle of a search tree node. The children block, the score bounds and the proof numbers are kept in the NodeArena
+// under the id of the node, the visit count and the score sums under statsId. Both ids are equal unless the statistics
+// are shared through the transposition table of the arena - the solver values are computed from the children of the
+// handle, which are not shared, so they stay with it.
+// The handle holds only what cannot be stored in primitive arrays or is read on every step of the search, the heap
+// retained per node is measured by NodeMemoryBenchmark. Handles are created through the static factories, which
+// register them in the arena once they are fully constructed.
+public final class Node {
     private static final double WIN_SCORE = 1.0;
     private static final double LOSS_SCORE = -WIN_SCORE;
 
+    // children of nodes with at least this many children are looked up through a hashed index
+    private static final int CHILD_INDEX_THRESHOLD = 16;
+
+    private final NodeArena arena;
+    private final int id;
+    private final int statsId;
+
     private Node parent;
     private Move moveFromParent;
 
-    private final Context context;
     private final Game game;
 
-    private int visitCount = 0;
+    // null for interior nodes searched with context replay, see createContext
+    private Context context;
+
+    // cached, so that the search does not need the context to walk the tree
+    private final int mover;
+    private final int depth;
+    private final boolean terminal;
+    private final long positionHash;
+
+    // Created on first update, only trees searched with AMAF based policies need it
+    private volatile AmafTable statisticsAMAF;
 
-    // For every player, sum of utilities / scores backpropagated through this node
-    private final double[] scoreSums;
+    // Generated when the node is expanded for the first time (null until then), most leaves are only simulated.
+    // Written under the lock of this node.
+    private volatile FastArrayList<Move> unexpandedMoves;
 
-    // Scores from range [-1, 1], 1 means win, -1 loss
-    private final double[] pessimisticScores;
-    private final double[] optimisticScores;
+    // Set while the proof and disproof numbers are the (1, 1) of a leaf (new or collapsed), so that they are computed
+    // from all children once the first child propagates its numbers. Guarded by the lock of the parent, like the score
+    // bounds and the proof numbers of this node (see propagateScoreBounds).
+    private boolean rescanProofNumbers;
 
-    private final Map<MoveKey, ActionStats> statisticsAMAF = new HashMap<>();
+    // Built lazily by getChildByMove, guarded by this and cleared whenever the children block is released
+    private ChildIndex childIndex;
 
-    // PNS
-    private int proofNumber = -1;
-    private int disproofNumber = -1;
+    // ids of the first size children of the block at firstChild
+    private static final class ChildIndex {
+        final Map<Move, Integer> childIds;
+        final int firstChild;
+        int size = 0;
 
-    private final List<Node> children = new ArrayList<>();
-    private final FastArrayList<Move> unexpandedMoves;
+        ChildIndex(final int firstChild, final int maxChildren) {
+            this.childIds = new HashMap<>(2 * maxChildren);
+            this.firstChild = firstChild;
+        }
+    }
 
     /*---------------------------------------------------------------------------------*/
 
-    public Node(final Node parent, final Move moveFromParent, final Context context) {
+    // Creates a root node in a new block of the arena
+    public static Node createRoot(final NodeArena arena, final Context context) {
+        return create(
+                arena,
+                arena.allocateRoot(),
+                -1,
+                null,
+                null,
+                context.game(),
+                context,
+                context.state().mover(),
+                context.trial().numMoves(),
+                context.trial().over(),
+                context.state().fullHash(),
+                null);
+    }
+
+    private static Node create(
+            final NodeArena arena,
+            final int id,
+            final int statsId,
+            final Node parent,
+            final Move moveFromParent,
+            final Game game,
+            final Context context,
+            final int mover,
+            final int depth,
+            final boolean terminal,
+            final long positionHash,
+            final FastArrayList<Move> unexpandedMoves) { // null - generated on the first expansion
+        final var node = new Node(
+                arena, id, statsId, parent, moveFromParent, game, context, mover, depth, terminal, positionHash);
+        node.unexpandedMoves = unexpandedMoves;
+
+        // interned by the MoveInterner of the arena, -1 for roots
+        final int moveId = moveFromParent != null ? arena.getMoveInterner().intern(moveFromParent) : -1;
+        arena.setNode(id, node, moveId, unexpandedMoves != null ? unexpandedMoves.size() : 0);
+        return node;
+    }
+
+    private Node(
+            final NodeArena arena,
+            final int id,
+            final int statsId,
+            final Node parent,
+            final Move moveFromParent,
+            final Game game,
+            final Context context,
+            final int mover,
+            final int depth,
+            final boolean terminal,
+            final long positionHash) {
+        this.arena = arena;
+        this.id = id;
+        // -1 - the statistics are not shared
+        this.statsId = statsId >= 0 ? statsId : id;
         this.parent = parent;
         this.moveFromParent = moveFromParent;
+        this.game = game;
         this.context = context;
-        this.game = context.game();
+        this.mover = mover;
+        this.depth = depth;
+        this.terminal = terminal;
+        this.positionHash = positionHash;
+    }
 
-        final var playerCount = game.players().count();
-        this.scoreSums = new double[playerCount + 1];
+    public NodeArena getArena() {
+        return arena;
+    }
 
-        // if (useScoreBounds)
-        this.pessimisticScores = new double[playerCount + 1];
-        this.optimisticScores = new double[playerCount + 1];
+    public int getId() {
+        return id;
+    }
 
-        for (var i = 1; i <= playerCount; i++) {
-            this.pessimisticScores[i] = LOSS_SCORE;
-            this.optimisticScores[i] = WIN_SCORE;
-        }
+    public int getStatsId() {
+        return statsId;
+    }
 
-        // For simplicity, we just take ALL legal moves.
-        // This means we do not support simultaneous-move games.
-        this.unexpandedMoves = new FastArrayList<>(game.moves(context).moves());
+    public long getPositionHash() {
+        return positionHash;
     }
 
     public Node getParent() {
@@ -76,62 +172,157 @@ public class Node {
         return moveFromParent;
     }
 
+    // Interned by the MoveInterner of the arena, -1 for roots
+    public int getMoveId() {
+        return arena.getMoveId(id);
+    }
+
+    // Contexts of nodes without a stored one are rebuilt on every call, they must not be modified
     public Context getContext() {
-        return context;
+        return context != null ? context : createContext(null);
     }
 
     public Game getGame() {
         return game;
     }
 
+    // Number of moves played in the trial of this node
+    public int getDepth() {
+        return depth;
+    }
+
     public int getVisitCount() {
-        return visitCount;
+        return arena.getVisitCount(statsId);
     }
 
     public int getVisitCountAMAF(final Move move) {
-        final var stats = statisticsAMAF.get(new MoveKey(move, 0));
-        return stats == null ? 0 : stats.visitCount;
+        final var statistics = statisticsAMAF;
+        final int moveId = arena.getMoveInterner().getId(move);
+        if (statistics == null || moveId < 0) {
+            return 0;
+        }
+
+        final var entries = statistics.getEntries();
+        final int slot = entries.find(moveId);
+        return slot < 0 ? 0 : entries.getVisitCount(slot);
+    }
+
+    // null until the first AMAF update
+    public AmafTable getStatisticsAMAF() {
+        return statisticsAMAF;
+    }
+
+    public int getNumStatisticsAMAF() {
+        final var statistics = statisticsAMAF;
+        return statistics == null ? 0 : statistics.size();
     }
 
     public double getScoreSum(final int player) {
-        return scoreSums[player];
+        return arena.getScoreSum(statsId, player);
     }
 
     public double getScoreSumAMAF(final Move move, final int player) {
-        final var stats = statisticsAMAF.get(new MoveKey(move, 0));
-        return stats == null ? 0.0 : stats.scoreSums[player];
+        final var statistics = statisticsAMAF;
+        final int moveId = arena.getMoveInterner().getId(move);
+        if (statistics == null || moveId < 0) {
+            return 0.0;
+        }
+
+        final var entries = statistics.getEntries();
+        final int slot = entries.find(moveId);
+        return slot < 0 ? 0.0 : entries.getScoreSum(slot, player);
     }
 
     public double getAverageScore(final int player) {
-        return scoreSums[player] / visitCount;
+        return arena.getScoreSum(statsId, player) / arena.getVisitCount(statsId);
     }
 
     public double getPessimisticScore(final int player) {
-        return pessimisticScores[player];
+        return arena.getPessimisticScore(id, player);
     }
 
     public double getOptimisticScore(final int player) {
-        return optimisticScores[player];
+        return arena.getOptimisticScore(id, player);
     }
 
     public int getProofNumber() {
-        return proofNumber;
+        return arena.getProofNumber(id);
     }
 
     public int getDisproofNumber() {
-        return disproofNumber;
+        return arena.getDisproofNumber(id);
     }
 
     public List<Node> getChildren() {
-        return children;
+        // the number of children is published last, so it has to be read first
+        final int numChildren = arena.getNumChildren(id);
+        final int firstChild = arena.getFirstChild(id);
+
+        return new AbstractList<>() {
+            @Override
+            public Node get(final int index) {
+                return arena.getNode(firstChild + Objects.checkIndex(index, numChildren));
+            }
+
+            @Override
+            public int size() {
+                return numChildren;
+            }
+        };
     }
 
     public FastArrayList<Move> getUnexpandedMoves() {
+        generateLegalMoves(null);
         return unexpandedMoves;
     }
 
+    // Valid once the legal moves are generated
+    public int getNumLegalMoves() {
+        return arena.getMaxChildren(id);
+    }
+
+    // Generates the legal moves unless already done, nodeContext is a context with the state of this node or null.
+    // Returns true if they were generated by this call.
+    public boolean generateLegalMoves(final Context nodeContext) {
+        if (unexpandedMoves != null) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (unexpandedMoves != null) {
+                return false;
+            }
+
+            // For simplicity, we just take ALL legal moves.
+            // This means we do not support simultaneous-move games.
+            final FastArrayList<Move> legalMoves;
+            if (terminal) {
+                legalMoves = new FastArrayList<>();
+            } else {
+                final Context context = nodeContext != null ? nodeContext : getContext();
+                legalMoves = new FastArrayList<>(context.game().moves(context).moves());
+            }
+
+            // the block size has to be known before other threads see the moves, see isExpanded
+            arena.setMaxChildren(id, legalMoves.size());
+            unexpandedMoves = legalMoves;
+            return true;
+        }
+    }
+
     public Node getChildByMove(final Move move) {
-        for (final var childNode : this.children) {
+        final int numChildren = arena.getNumChildren(id);
+        final int firstChild = arena.getFirstChild(id);
+
+        if (numChildren >= CHILD_INDEX_THRESHOLD) {
+            synchronized (this) {
+                final Integer childId = updateChildIndex(firstChild, numChildren).childIds.get(move);
+                return childId != null ? arena.getNode(childId) : null;
+            }
+        }
+
+        for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+            final var childNode = arena.getNode(childId);
             if (childNode.moveFromParent.equals(move)) {
                 return childNode;
             }
@@ -139,22 +330,122 @@ public class Node {
         return null;
     }
 
+    // Children are only appended to a block, so the index is extended unless the block was replaced
+    private ChildIndex updateChildIndex(final int firstChild, final int numChildren) {
+        if (childIndex == null || childIndex.firstChild != firstChild) {
+            childIndex = new ChildIndex(firstChild, arena.getMaxChildren(id));
+        }
+
+        for (var childId = firstChild + childIndex.size; childId < firstChild + numChildren; childId++) {
+            childIndex.childIds.put(arena.getNode(childId).moveFromParent, childId);
+        }
+        childIndex.size = Math.max(childIndex.size, numChildren);
+        return childIndex;
+    }
+
+    private synchronized void clearChildIndex() {
+        childIndex = null;
+    }
+
     public int getPlayer() {
-        return context.state().mover();
+        return mover;
+    }
+
+    /** Context replay */
+
+    // Returns a new context with the state of this node, which the caller may modify.
+    // It is copied from the closest ancestor with a stored (or cached) context and the remaining moves are replayed.
+    // If more than one move is replayed, the context of the first replayed node is added to the cache, so that
+    // frequently visited paths are replayed from deeper nodes over time.
+    public Context createContext(final ContextCache contextCache) {
+        final var path = new ArrayDeque<Node>();
+
+        Node node = this;
+        Context source = node.context;
+        while (source == null) {
+            source = contextCache == null ? null : contextCache.get(node);
+            if (source == null) {
+                path.push(node);
+                node = node.parent;
+                source = node.context;
+            }
+        }
+
+        final var newContext = new Context(source);
+        final var firstReplayed = path.peek();
+        final boolean cacheFirst = contextCache != null && path.size() > 1;
+
+        while (!path.isEmpty()) {
+            final var replayed = path.pop();
+            newContext.game().apply(newContext, replayed.moveFromParent);
+
+            if (cacheFirst && replayed == firstReplayed) {
+                contextCache.put(replayed, new Context(newContext));
+            }
+        }
+
+        return newContext;
     }
 
     /** MCTS logic */
-    public void detachFromParent() {
+
+    // Tree reuse - the new root needs its own context, its descendants are replayed from it
+    public void detachFromParent(final Context rootContext) {
         this.parent = null;
         this.moveFromParent = null;
+
+        if (this.context == null) {
+            this.context = rootContext;
+        }
+    }
+
+    // Tree reuse - frees the subtrees of all children except the kept one, see NodeArena.moveRoot
+    public void releaseChildrenExcept(final Node keptChild) {
+        // the block holding the kept child stays allocated, only the other subtrees are freed
+        final int numChildren = arena.getNumChildren(id);
+        final int firstChild = arena.getFirstChild(id);
+
+        for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+            if (childId != keptChild.id) {
+                arena.releaseSubtree(childId);
+            }
+        }
+    }
+
+    // Memory budget - frees the subtree below this node, which becomes a leaf again.
+    // Its own statistics are kept, the children are expanded again when the search comes back to it. Proof and
+    // disproof numbers (if any) are reset to those of a new leaf and the ancestors are updated from the change.
+    public void collapse(final int proofPlayer) {
+        synchronized (this) {
+            arena.releaseDescendants(id);
+            clearChildIndex();
+
+            // generated again by the next expansion
+            unexpandedMoves = null;
+        }
+
+        synchronized (parent != null ? parent : this) {
+            final int proofNumber = this.getProofNumber();
+            if (proofNumber < 0) {
+                return;
+            }
+
+            final int disproofNumber = this.getDisproofNumber();
+            arena.setProofNumber(this.id, 1);
+            arena.setDisproofNumber(this.id, 1);
+            rescanProofNumbers = true;
+
+            propagateChildNumbers(proofNumber, disproofNumber, proofPlayer);
+        }
     }
 
     public boolean isExpanded() {
-        return unexpandedMoves.isEmpty();
+        // all children are published only after the last unexpanded move was taken
+        return unexpandedMoves != null && arena.getNumChildren(id) == arena.getMaxChildren(id);
     }
 
     public boolean isTerminal() {
-        return context.trial().over();
+        return terminal;
     }
 
     public boolean isSolved(final int player) {
@@ -170,233 +461,733 @@ public class Node {
     }
 
     public Node select(final ISelectionPolicy selectionPolicy) {
-        Node bestChild = null;
+        // all children are scored at once from their statistics gathered into primitive arrays
+        final var batch = ChildBatch.forCurrentThread();
+        batch.gather(this);
+        selectionPolicy.computeValues(batch);
+
+        int bestIndex = -1;
         double bestValue = Double.NEGATIVE_INFINITY;
+        double bestAvg = Double.NEGATIVE_INFINITY;
         int numBestFound = 0;
 
-        for (final var childNode : this.children) {
-            final double childValue = selectionPolicy.getNodeValue(childNode);
+        for (var i = 0; i < batch.size; i++) {
+            final double childValue = batch.values[i];
 
             if (childValue > bestValue) {
                 bestValue = childValue;
-                bestChild = childNode;
+                bestAvg = batch.scoreSums[i] / batch.visitCounts[i];
+                bestIndex = i;
                 numBestFound = 1;
             } else if (childValue == bestValue) {
-                final var childAvg = childNode.getAverageScore(getPlayer());
-                final var bestAvg =
-                        bestChild == null ? Double.NEGATIVE_INFINITY : bestChild.getAverageScore(getPlayer());
+                final double childAvg = batch.scoreSums[i] / batch.visitCounts[i];
 
                 // Tie-Breaker - better average score
                 if (childAvg > bestAvg) {
-                    bestChild = childNode;
+                    bestAvg = childAvg;
+                    bestIndex = i;
                     numBestFound = 1;
                 } else if (childAvg == bestAvg && ThreadLocalRandom.current().nextInt() % ++numBestFound == 0) {
-                    bestChild = childNode;
+                    bestIndex = i;
                 }
             }
         }
-        return bestChild;
+        return bestIndex < 0 ? null : batch.getChild(bestIndex);
     }
 
     public Node expand() {
-        if (this.isExpanded() || this.isTerminal() || this.isSolved(this.getPlayer())) {
-            return this;
-        }
+        return expand(false);
+    }
+
+    public Node expand(final boolean addVirtualLoss) {
+        return expand(null, addVirtualLoss);
+    }
+
+    // Context replay - nodeContext is a private context with the state of this node (see createContext).
+    // The move is applied to it directly and the child does not store it, afterwards it holds the state of the
+    // returned node. Without it the child gets its own copy of the context of this node.
+    public Node expand(final Context nodeContext, final boolean addVirtualLoss) {
+        // Several threads may try to expand the same node, only one of them at a time takes an unexpanded move
+        synchronized (this) {
+            if (this.isTerminal() || this.isSolved(this.getPlayer())) {
+                return this;
+            }
+
+            generateLegalMoves(nodeContext);
+            if (this.unexpandedMoves.isEmpty()) {
+                return this;
+            }
 
-        final var move = this.unexpandedMoves.remove(ThreadLocalRandom.current().nextInt(this.unexpandedMoves.size()));
+            final var move =
+                    this.unexpandedMoves.remove(ThreadLocalRandom.current().nextInt(this.unexpandedMoves.size()));
 
-        final Context newContext = new Context(this.context);
+            final Context newContext = nodeContext != null ? nodeContext : new Context(this.getContext());
 
-        newContext.game().apply(newContext, move);
+            newContext.game().apply(newContext, move);
 
-        var newNode = new Node(this, newContext.trial().lastMove(), newContext);
-        this.children.add(newNode);
+            final var transpositions = arena.getTranspositionTable();
+            final long positionHash = newContext.state().fullHash();
+            final int depth = newContext.trial().numMoves();
 
-        return newNode;
+            return this.addChild(
+                    newContext.trial().lastMove(),
+                    nodeContext != null ? null : newContext,
+                    transpositions != null ? transpositions.acquire(positionHash, depth) : -1,
+                    newContext.state().mover(),
+                    depth,
+                    newContext.trial().over(),
+                    positionHash,
+                    null,
+                    addVirtualLoss);
+        }
+    }
+
+    private Node addChild(
+            final Move move,
+            final Context childContext,
+            final int childStatsId,
+            final int childMover,
+            final int childDepth,
+            final boolean childTerminal,
+            final long childPositionHash,
+            final FastArrayList<Move> childMoves,
+            final boolean addVirtualLoss) {
+        int firstChild = arena.getFirstChild(id);
+        if (firstChild < 0) {
+            // the whole block is reserved at once, so that the children are adjacent in the arena
+            firstChild = arena.allocateBlock(arena.getMaxChildren(id));
+            arena.setChildBlock(id, firstChild, 0);
+        }
+
+        final int numChildren = arena.getNumChildren(id);
+        final var child = create(
+                arena,
+                firstChild + numChildren,
+                childStatsId,
+                this,
+                move,
+                game,
+                childContext,
+                childMover,
+                childDepth,
+                childTerminal,
+                childPositionHash,
+                childMoves);
+
+        if (addVirtualLoss) {
+            // before the child is published, so that other threads never see it unvisited
+            child.addVirtualLoss();
+        }
+
+        arena.setChildBlock(id, firstChild, numChildren + 1);
+        return child;
+    }
+
+    // Tree parallelization - a node chosen by one thread temporarily counts as a lost visit for the player choosing
+    // it, so that the other threads prefer different paths until the result is backpropagated
+    public void addVirtualLoss() {
+        arena.addVisits(statsId, 1);
+        arena.addScore(statsId, parent.getPlayer(), LOSS_SCORE);
     }
 
     public record SimulationResult(Context context, double[] utilities) {}
 
     public SimulationResult simulate(final IPlayoutPolicy playoutPolicy) {
-        Context tempContext = this.context;
+        return simulate(playoutPolicy, null);
+    }
+
+    // Context replay - the playout runs directly on nodeContext, a private context with the state of this node
+    public SimulationResult simulate(final IPlayoutPolicy playoutPolicy, final Context nodeContext) {
+        Context tempContext = nodeContext != null ? nodeContext : this.getContext();
 
         if (this.isSolved(this.getPlayer())) {
-            return new SimulationResult(tempContext, pessimisticScores);
+            final var playerCount = arena.getPlayerCount();
+            final var scores = new double[playerCount + 1];
+            for (var p = 1; p <= playerCount; p++) {
+                scores[p] = getPessimisticScore(p);
+            }
+            return new SimulationResult(tempContext, scores);
         }
 
         if (!isTerminal()) {
-            tempContext = new Context(this.context);
+            if (nodeContext == null) {
+                tempContext = new Context(tempContext);
+            }
             playoutPolicy.runPlayout(tempContext);
         }
 
-        return new SimulationResult(tempContext, RankUtils.utilities(tempContext));
+        return new SimulationResult(tempContext, playoutPolicy.getUtilities(tempContext));
+    }
+
+    public List<SimulationResult> simulate(
+            final IPlayoutPolicy playoutPolicy, final ExecutorService threadPool, final int numPlayouts) {
+        return simulate(playoutPolicy, null, threadPool, numPlayouts);
+    }
+
+    // Leaf parallelization - runs numPlayouts playouts from this node, all but one of them on the thread pool.
+    // The result of a solved or terminal node is known, so it is returned only once.
+    public List<SimulationResult> simulate(
+            final IPlayoutPolicy playoutPolicy,
+            final Context nodeContext,
+            final ExecutorService threadPool,
+            final int numPlayouts) {
+        if (numPlayouts <= 1 || this.isTerminal() || this.isSolved(this.getPlayer())) {
+            return List.of(simulate(playoutPolicy, nodeContext));
+        }
+
+        final List<Future<SimulationResult>> playouts = new ArrayList<>(numPlayouts - 1);
+        for (var i = 1; i < numPlayouts; i++) {
+            // copied before the first playout starts modifying nodeContext
+            final Context playoutContext = nodeContext != null ? new Context(nodeContext) : null;
+            playouts.add(threadPool.submit(() -> simulate(playoutPolicy, playoutContext)));
+        }
+
+        final List<SimulationResult> simResults = new ArrayList<>(numPlayouts);
+        simResults.add(simulate(playoutPolicy, nodeContext));
+
+        try {
+            for (final var playout : playouts) {
+                simResults.add(playout.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Playout failed", e.getCause());
+        }
+
+        return simResults;
     }
 
     public void propagate(final SimulationResult simRes, final int flags, final int proofPlayer) {
+        propagate(List.of(simRes), flags, proofPlayer);
+    }
+
+    public void propagate(final List<SimulationResult> simResults, final int flags, final int proofPlayer) {
+        propagate(simResults, flags, proofPlayer, null);
+    }
+
+    // Backpropagates a batch of playouts from this node at once, the visit counts are weighted by the batch size.
+    // searchRoot is the node the iteration started from (null - the root of the tree), virtual loss was only added to
+    // the nodes selected below it.
+    public void propagate(
+            final List<SimulationResult> simResults, final int flags, final int proofPlayer, final Node searchRoot) {
         final boolean useScoreBounds = ((flags & BackpropagationFlags.SCORE_BOUNDS) != 0);
         final boolean useAMAF = ((flags & BackpropagationFlags.AMAF_STATS) != 0);
         final boolean usePNS = ((flags & BackpropagationFlags.PROOF_DISPROOF_NUMBERS) != 0);
+        final boolean useVirtualLoss = ((flags & BackpropagationFlags.VIRTUAL_LOSS) != 0);
 
-        final var utilities = simRes.utilities();
+        // all results are equal for terminal nodes, the solver only needs the utilities in that case
+        final var utilities = simResults.getFirst().utilities();
 
+        // the solver updates lock the nodes of the path one by one, see propagateScoreBounds
         if (useScoreBounds && this.isTerminal()) {
             propagateScoreBounds(utilities);
         }
 
+        if (usePNS) {
+            propagatePNS(utilities, proofPlayer);
+        }
+
         if (useAMAF) {
-            propagateScoreAMAF(simRes);
+            final var history = MoveHistory.forCurrentThread();
+            final int firstIndex = this.getTreeRoot().depth;
+            for (final var simRes : simResults) {
+                history.fill(simRes.context().trial(), firstIndex, arena.getMoveInterner());
+                propagateScoreAMAF(history, simRes.utilities());
+            }
         }
 
-        if (usePNS) {
-            propagatePNS(utilities, proofPlayer);
+        final var playerCount = arena.getPlayerCount();
+        final int numResults = simResults.size();
+
+        final double[] utilitySums;
+        if (numResults == 1) {
+            utilitySums = utilities;
+        } else {
+            utilitySums = new double[playerCount + 1];
+            for (final var simRes : simResults) {
+                for (var p = 1; p <= playerCount; p++) {
+                    utilitySums[p] += simRes.utilities()[p];
+                }
+            }
         }
 
+        boolean virtualLoss = useVirtualLoss;
         Node node = this;
         while (node != null) {
-            node.visitCount++;
-            for (var p = 1; p <= this.game.players().count(); p++) {
-                node.scoreSums[p] += utilities[p];
+            if (node == searchRoot || node.parent == null) {
+                virtualLoss = false;
+            }
+
+            if (virtualLoss) {
+                // one visit was already counted when the virtual loss was added
+                arena.addScore(node.statsId, node.parent.getPlayer(), -LOSS_SCORE);
+                if (numResults > 1) {
+                    arena.addVisits(node.statsId, numResults - 1);
+                }
+            } else {
+                arena.addVisits(node.statsId, numResults);
+            }
+
+            for (var p = 1; p <= playerCount; p++) {
+                arena.addScore(node.statsId, p, utilitySums[p]);
             }
             node = node.parent;
         }
     }
 
-    private void propagateScoreBounds(final double[] utilities) {
-        final var playerCount = this.game.players().count();
+    Node getTreeRoot() {
+        Node node = this;
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node;
+    }
+
+    // Score bounds of a node are the max (its mover) or min (other players) of the bounds of its children, and the
+    // unexplored children are assumed to be a win for the mover and a loss for the others while the node is not fully
+    // expanded. Every ancestor is updated from the change of the child below it, all children are scanned only when
+    // that child defined the old extremum and has moved away from it. The walk stops at the first unchanged ancestor.
+    // The solver values of a node (score bounds, proof numbers) are guarded by the lock of its parent, which also
+    // guards its children and unexpanded moves, so a node is updated while the lock of its parent is held together
+    // with its own lock. The locks are taken from the bottom of the path up, parallel updates of different subtrees
+    // only meet at their common ancestors.
+    public void propagateScoreBounds(final double[] utilities) {
+        final var playerCount = arena.getPlayerCount();
+
+        // bounds of the changed child before the update, indexed by player
+        final var oldPessimistic = new double[playerCount + 1];
+        final var oldOptimistic = new double[playerCount + 1];
+
+        synchronized (parent != null ? parent : this) {
+            for (var p = 1; p <= playerCount; p++) {
+                oldPessimistic[p] = getPessimisticScore(p);
+                oldOptimistic[p] = getOptimisticScore(p);
+                arena.setPessimisticScore(this.id, p, utilities[p]);
+                arena.setOptimisticScore(this.id, p, utilities[p]);
+            }
 
-        for (var p = 1; p <= playerCount; p++) {
-            this.pessimisticScores[p] = utilities[p];
-            this.optimisticScores[p] = utilities[p];
+            if (parent != null) {
+                parent.updateScoreBounds(this, oldPessimistic, oldOptimistic);
+            }
         }
+    }
 
-        Node node = this.parent;
-        while (node != null) {
-            for (var p = 1; p <= this.game.players().count(); p++) {
-                final var player = p;
-
-                if (node.isExpanded()) {
-                    if (player == node.getPlayer()) {
-                        node.pessimisticScores[player] = node.children.stream()
-                                .mapToDouble(child -> child.getPessimisticScore(player))
-                                .max()
-                                .orElse(LOSS_SCORE);
-
-                        node.optimisticScores[player] = node.children.stream()
-                                .mapToDouble(child -> child.getOptimisticScore(player))
-                                .max()
-                                .orElse(WIN_SCORE);
-                    } else {
-                        node.pessimisticScores[player] = node.children.stream()
-                                .mapToDouble(child -> child.getPessimisticScore(player))
-                                .min()
-                                .orElse(LOSS_SCORE);
-
-                        node.optimisticScores[player] = node.children.stream()
-                                .mapToDouble(child -> child.getOptimisticScore(player))
-                                .min()
-                                .orElse(WIN_SCORE);
-                    }
-                } else {
-                    if (player == node.getPlayer()) {
-                        node.pessimisticScores[player] = node.children.stream()
-                                .mapToDouble(child -> child.getPessimisticScore(player))
-                                .max()
-                                .orElse(LOSS_SCORE);
-
-                        node.optimisticScores[player] = WIN_SCORE;
-                    } else {
-                        node.pessimisticScores[player] = LOSS_SCORE;
-
-                        node.optimisticScores[player] = node.children.stream()
-                                .mapToDouble(child -> child.getOptimisticScore(player))
-                                .min()
-                                .orElse(WIN_SCORE);
-                    }
-                }
+    // Called with the lock of this node held, after the bounds of the child changed from the old ones (the arrays are
+    // reused for the old bounds of this node)
+    private void updateScoreBounds(final Node child, final double[] oldPessimistic, final double[] oldOptimistic) {
+        if (parent == null) {
+            updateOwnScoreBounds(child, oldPessimistic, oldOptimistic);
+            return;
+        }
+
+        synchronized (parent) {
+            updateOwnScoreBounds(child, oldPessimistic, oldOptimistic);
+        }
+    }
+
+    private void updateOwnScoreBounds(final Node child, final double[] oldPessimistic, final double[] oldOptimistic) {
+        final var playerCount = arena.getPlayerCount();
+        final boolean expanded = isExpanded();
+        boolean changed = false;
+
+        for (var p = 1; p <= playerCount; p++) {
+            final double pessimistic = getPessimisticScore(p);
+            final double optimistic = getOptimisticScore(p);
+
+            final double newPessimistic;
+            final double newOptimistic;
+
+            if (p == getPlayer()) {
+                newPessimistic = updatedMax(pessimistic, oldPessimistic[p], child.getPessimisticScore(p), p, true);
+                newOptimistic = expanded
+                        ? updatedMax(optimistic, oldOptimistic[p], child.getOptimisticScore(p), p, false)
+                        : WIN_SCORE;
+            } else {
+                newPessimistic = expanded
+                        ? updatedMin(pessimistic, oldPessimistic[p], child.getPessimisticScore(p), p, true)
+                        : LOSS_SCORE;
+                newOptimistic = updatedMin(optimistic, oldOptimistic[p], child.getOptimisticScore(p), p, false);
             }
-            node = node.parent;
+
+            if (newPessimistic != pessimistic || newOptimistic != optimistic) {
+                arena.setPessimisticScore(id, p, newPessimistic);
+                arena.setOptimisticScore(id, p, newOptimistic);
+                changed = true;
+            }
+
+            oldPessimistic[p] = pessimistic;
+            oldOptimistic[p] = optimistic;
+        }
+
+        if (changed && parent != null) {
+            parent.updateScoreBounds(this, oldPessimistic, oldOptimistic);
         }
     }
 
-    private void propagateScoreAMAF(final SimulationResult simRes) {
-        final var leafContext = simRes.context();
-        final var utilities = simRes.utilities();
+    // Max of a bound over the children after one of them changed from oldValue to newValue
+    private double updatedMax(
+            final double current,
+            final double oldValue,
+            final double newValue,
+            final int player,
+            final boolean pessimistic) {
+        if (newValue >= current) {
+            return newValue;
+        }
+        if (oldValue == current && newValue < oldValue) {
+            return scanChildBounds(player, pessimistic, true);
+        }
+        return current;
+    }
 
-        final var playerCount = this.game.players().count();
+    // Min of a bound over the children after one of them changed from oldValue to newValue
+    private double updatedMin(
+            final double current,
+            final double oldValue,
+            final double newValue,
+            final int player,
+            final boolean pessimistic) {
+        if (newValue <= current) {
+            return newValue;
+        }
+        if (oldValue == current && newValue > oldValue) {
+            return scanChildBounds(player, pessimistic, false);
+        }
+        return current;
+    }
 
-        final var fullActionHistory = leafContext.trial().generateCompleteMovesList();
+    private double scanChildBounds(final int player, final boolean pessimistic, final boolean max) {
+        double result = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
 
-        Node node = this;
-        while (node != null) {
-            final var firstActionIndex = node.context.trial().numMoves();
-            final var actionHistory = fullActionHistory.subList(firstActionIndex, fullActionHistory.size());
+        final int numChildren = arena.getNumChildren(id);
+        final int firstChild = arena.getFirstChild(id);
+
+        for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+            final var childNode = arena.getNode(childId);
+            final double bound =
+                    pessimistic ? childNode.getPessimisticScore(player) : childNode.getOptimisticScore(player);
+            result = max ? Math.max(result, bound) : Math.min(result, bound);
+        }
+
+        if (numChildren == 0) {
+            return max ? LOSS_SCORE : WIN_SCORE;
+        }
+        return result;
+    }
 
-            for (final var act : actionHistory) {
-                final var moveKey = new MoveKey(act, 0);
-                if (!node.statisticsAMAF.containsKey(moveKey)) {
-                    node.statisticsAMAF.put(moveKey, new ActionStats(playerCount));
+    private AmafTable getOrCreateStatisticsAMAF() {
+        var statistics = statisticsAMAF;
+        if (statistics == null) {
+            synchronized (this) {
+                statistics = statisticsAMAF;
+                if (statistics == null) {
+                    statistics = new AmafTable(arena.getPlayerCount());
+                    statisticsAMAF = statistics;
                 }
-                final var stats = node.statisticsAMAF.get(moveKey);
+            }
+        }
+        return statistics;
+    }
 
-                stats.visitCount++;
-                for (var p = 1; p <= playerCount; p++) {
-                    stats.scoreSums[p] += utilities[p];
+    // The history has to start at the depth of the tree root at the latest
+    public void propagateScoreAMAF(final MoveHistory history, final double[] utilities) {
+        // Single backward pass - the moves played from a node are the moves played from its child plus the move
+        // leading to the child, so the suffix of the history only grows on the way to the root. Repeated moves are
+        // counted once per occurrence, with a single table update per distinct move.
+        final var suffix = AmafSuffix.forCurrentThread();
+        int index = history.getEndIndex();
+
+        try {
+            Node node = this;
+            while (node != null) {
+                for (; index > node.depth; index--) {
+                    suffix.add(history.getMoveId(index - 1));
                 }
+                node.getOrCreateStatisticsAMAF().add(suffix, utilities);
+                node = node.parent;
             }
-            node = node.parent;
+        } finally {
+            suffix.clear();
         }
     }
 
+    // Proof numbers of OR nodes (the proof player moves) are the min over the children, disproof numbers the sum over
+    // the children plus 1 for every unexpanded move; AND nodes the other way around. Every ancestor is updated from the
+    // change of the child below it and the walk stops at the first ancestor whose numbers did not change. The nodes
+    // are locked like for the score bounds, see propagateScoreBounds.
     private void propagatePNS(final double[] utilities, final int proofPlayer) {
-        if (this.isTerminal()) {
-            if (utilities[proofPlayer] == WIN_SCORE) {
-                this.proofNumber = 0;
-                this.disproofNumber = Integer.MAX_VALUE;
+        synchronized (parent != null ? parent : this) {
+            final int oldProofNumber = this.getProofNumber();
+            final int oldDisproofNumber = this.getDisproofNumber();
+
+            if (this.isTerminal()) {
+                if (utilities[proofPlayer] == WIN_SCORE) {
+                    arena.setProofNumber(this.id, 0);
+                    arena.setDisproofNumber(this.id, Integer.MAX_VALUE);
+                } else {
+                    arena.setProofNumber(this.id, Integer.MAX_VALUE);
+                    arena.setDisproofNumber(this.id, 0);
+                }
+            } else if (oldProofNumber < 0) {
+                // new leaf - an unknown OR node needs to prove 1 child or disprove all children,
+                // an unknown AND node needs to prove all children or disprove 1 child
+                arena.setProofNumber(this.id, 1);
+                arena.setDisproofNumber(this.id, 1);
+                rescanProofNumbers = true;
             } else {
-                this.proofNumber = Integer.MAX_VALUE;
-                this.disproofNumber = 0;
+                // the numbers of this node are kept up to date from its children
+                return;
             }
-        } else if (this.getPlayer() == proofPlayer) {
-            // unknown OR node - need to prove 1 child or disprove all children
-            this.proofNumber = 1;
-            this.disproofNumber = 1;
+
+            propagateChildNumbers(oldProofNumber, oldDisproofNumber, proofPlayer);
+        }
+    }
+
+    // Updates the ancestors after the numbers of this node changed from the old ones, called with the lock of the
+    // parent held
+    private void propagateChildNumbers(final int oldProofNumber, final int oldDisproofNumber, final int proofPlayer) {
+        if (parent != null) {
+            parent.updateProofNumbers(this, oldProofNumber, oldDisproofNumber, proofPlayer);
+        }
+    }
+
+    // Called with the lock of this node held, after the numbers of the child changed from the old ones
+    private void updateProofNumbers(
+            final Node child, final int childOldProofNumber, final int childOldDisproofNumber, final int proofPlayer) {
+        if (parent == null) {
+            updateOwnProofNumbers(child, childOldProofNumber, childOldDisproofNumber, proofPlayer);
+            return;
+        }
+
+        synchronized (parent) {
+            updateOwnProofNumbers(child, childOldProofNumber, childOldDisproofNumber, proofPlayer);
+        }
+    }
+
+    private void updateOwnProofNumbers(
+            final Node child, final int childOldProofNumber, final int childOldDisproofNumber, final int proofPlayer) {
+        final int proofNumber = getProofNumber();
+        final int disproofNumber = getDisproofNumber();
+
+        // the numbers of a leaf do not account for its unexpanded moves until all its children are scanned
+        final boolean rescan = proofNumber < 0 || rescanProofNumbers;
+        rescanProofNumbers = false;
+        final boolean orNode = getPlayer() == proofPlayer;
+
+        final int newProofNumber;
+        final int newDisproofNumber;
+
+        if (orNode) {
+            newProofNumber = rescan
+                    ? minChildNumber(true)
+                    : updatedMinNumber(proofNumber, childOldProofNumber, child.getProofNumber(), true);
+            newDisproofNumber = rescan
+                    ? sumChildNumbers(false)
+                    : updatedSumNumber(disproofNumber, childOldDisproofNumber, child.getDisproofNumber(), false);
         } else {
-            // unknown AND node - need to prove all children or disprove 1 child
-            this.proofNumber = 1;
-            this.disproofNumber = 1;
+            newProofNumber = rescan
+                    ? sumChildNumbers(true)
+                    : updatedSumNumber(proofNumber, childOldProofNumber, child.getProofNumber(), true);
+            newDisproofNumber = rescan
+                    ? minChildNumber(false)
+                    : updatedMinNumber(disproofNumber, childOldDisproofNumber, child.getDisproofNumber(), false);
         }
 
-        Node node = this.parent;
-        while (node != null) {
-            if (node.getPlayer() == proofPlayer) {
-                // OR node - proof number is min over children, disproof number is sum
-                node.proofNumber = Integer.MAX_VALUE;
-                node.disproofNumber = node.unexpandedMoves.size();
-
-                for (final var child : node.children) {
-                    if (Integer.max(node.disproofNumber, child.disproofNumber) == Integer.MAX_VALUE) {
-                        node.disproofNumber = Integer.MAX_VALUE;
-                    } else {
-                        node.disproofNumber += child.disproofNumber;
-                    }
-                    node.proofNumber = Integer.min(node.proofNumber, child.proofNumber);
+        if (newProofNumber == proofNumber && newDisproofNumber == disproofNumber) {
+            return;
+        }
+
+        arena.setProofNumber(id, newProofNumber);
+        arena.setDisproofNumber(id, newDisproofNumber);
+
+        propagateChildNumbers(proofNumber, disproofNumber, proofPlayer);
+    }
+
+    // Sum after one child changed from oldValue to newValue. A child without numbers yet (-1) was counted
+    // as 1, like the unexpanded move it was created from.
+    private int updatedSumNumber(final int current, final int oldValue, final int newValue, final boolean proof) {
+        if (newValue == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        if (current == Integer.MAX_VALUE) {
+            // some other child may still be infinite
+            return oldValue == Integer.MAX_VALUE ? sumChildNumbers(proof) : current;
+        }
+
+        final long sum = (long) current - countedNumber(oldValue) + countedNumber(newValue);
+        return (int) Math.min(Integer.MAX_VALUE, sum);
+    }
+
+    private static int countedNumber(final int number) {
+        return number < 0 ? 1 : number;
+    }
+
+    // Min after one child changed from oldValue to newValue, a child without numbers yet (-1) is not counted
+    private int updatedMinNumber(final int current, final int oldValue, final int newValue, final boolean proof) {
+        if (newValue <= current) {
+            return newValue;
+        }
+        if (oldValue == current) {
+            return minChildNumber(proof);
+        }
+        return current;
+    }
+
+    private int sumChildNumbers(final boolean proof) {
+        // only called for nodes with children, which have generated their moves
+        long sum = unexpandedMoves.size();
+
+        final int numChildren = arena.getNumChildren(id);
+        final int firstChild = arena.getFirstChild(id);
+
+        for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+            final var childNode = arena.getNode(childId);
+            final int number = proof ? childNode.getProofNumber() : childNode.getDisproofNumber();
+
+            if (number == Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            }
+            sum += countedNumber(number);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, sum);
+    }
+
+    private int minChildNumber(final boolean proof) {
+        int min = Integer.MAX_VALUE;
+
+        final int numChildren = arena.getNumChildren(id);
+        final int firstChild = arena.getFirstChild(id);
+
+        for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+            final var childNode = arena.getNode(childId);
+            final int number = proof ? childNode.getProofNumber() : childNode.getDisproofNumber();
+
+            if (number >= 0) {
+                min = Integer.min(min, number);
+            }
+        }
+        return min;
+    }
+
+    /** Root parallelization */
+
+    // Builds a root summarising the trees grown independently by the root-parallel workers.
+    // Statistics of root children reached by the same move are summed, score bounds are intersected,
+    // and every merged child shares the children block of its most visited copy, so that the principal
+    // variation can still be followed below the root. All trees have to be stored in the same arena,
+    // which must not have a transposition table (the workers would share their statistics otherwise).
+    // The merged tree is read-only: below the merged children the nodes still belong to the worker trees and their
+    // parent is the worker copy (whose statistics match them), so it must never be expanded, backpropagated or
+    // collapsed. The search continues on the worker trees, see releaseMergedRoot.
+    public static Node mergeRoots(final List<Node> roots) {
+        final var firstRoot = roots.getFirst();
+        final var arena = firstRoot.arena;
+        final var playerCount = arena.getPlayerCount();
+
+        final var merged = create(
+                arena,
+                arena.allocateRoot(),
+                -1,
+                null,
+                null,
+                firstRoot.game,
+                firstRoot.context,
+                firstRoot.mover,
+                firstRoot.depth,
+                firstRoot.terminal,
+                firstRoot.positionHash,
+                new FastArrayList<>());
+        firstRoot.generateLegalMoves(null);
+        arena.setMaxChildren(merged.id, firstRoot.getNumLegalMoves());
+
+        final Map<MoveKey, Node> bestCopies = new HashMap<>();
+
+        for (final var root : roots) {
+            merged.mergeStatistics(root, playerCount);
+
+            for (final var child : root.getChildren()) {
+                final var moveKey = new MoveKey(child.moveFromParent, 0);
+                var mergedChild = merged.getChildByMove(child.moveFromParent);
+
+                if (mergedChild == null) {
+                    mergedChild = merged.addChild(
+                            child.moveFromParent,
+                            child.context,
+                            -1,
+                            child.mover,
+                            child.depth,
+                            child.terminal,
+                            child.positionHash,
+                            new FastArrayList<>(),
+                            false);
                 }
-            } else {
-                // AND node - proof number is sum over children, disproof number is min
-                node.proofNumber = node.unexpandedMoves.size();
-                node.disproofNumber = Integer.MAX_VALUE;
-
-                for (final var child : node.children) {
-                    if (Integer.max(node.proofNumber, child.proofNumber) == Integer.MAX_VALUE) {
-                        node.proofNumber = Integer.MAX_VALUE;
-                    } else {
-                        node.proofNumber += child.proofNumber;
-                    }
-                    node.disproofNumber = Integer.min(node.disproofNumber, child.disproofNumber);
+                mergedChild.mergeStatistics(child, playerCount);
+
+                final var bestCopy = bestCopies.get(moveKey);
+                if (bestCopy == null || child.getVisitCount() > bestCopy.getVisitCount()) {
+                    bestCopies.put(moveKey, child);
                 }
             }
+        }
 
-            node = node.parent;
+        for (final var mergedChild : merged.getChildren()) {
+            final var bestCopy = bestCopies.get(new MoveKey(mergedChild.moveFromParent, 0));
+            arena.setMaxChildren(mergedChild.id, arena.getMaxChildren(bestCopy.id));
+            arena.setChildBlock(mergedChild.id, arena.getFirstChild(bestCopy.id), arena.getNumChildren(bestCopy.id));
+
+            final var bestCopyMoves = bestCopy.unexpandedMoves;
+            mergedChild.unexpandedMoves = bestCopyMoves != null ? new FastArrayList<>(bestCopyMoves) : null;
+        }
+
+        // a move is unexpanded at the merged root only if no worker has expanded it
+        for (final var move : firstRoot.getUnexpandedMoves()) {
+            if (merged.getChildByMove(move) == null) {
+                merged.unexpandedMoves.add(move);
+            }
+        }
+
+        return merged;
+    }
+
+    // Frees a root built by mergeRoots, the blocks below its children belong to the worker trees
+    public void releaseMergedRoot() {
+        final int firstChild = arena.getFirstChild(id);
+        if (firstChild >= 0) {
+            arena.releaseBlock(firstChild, arena.getMaxChildren(id));
+            arena.setChildBlock(id, -1, 0);
+        }
+        arena.releaseTree(id);
+    }
+
+    private void mergeStatistics(final Node other, final int playerCount) {
+        arena.addVisits(this.statsId, other.getVisitCount());
+        for (var p = 1; p <= playerCount; p++) {
+            arena.addScore(this.statsId, p, other.getScoreSum(p));
+            arena.setPessimisticScore(this.id, p, Math.max(this.getPessimisticScore(p), other.getPessimisticScore(p)));
+            arena.setOptimisticScore(this.id, p, Math.min(this.getOptimisticScore(p), other.getOptimisticScore(p)));
+        }
+
+        final var otherStatistics = other.statisticsAMAF;
+        if (otherStatistics != null) {
+            this.getOrCreateStatisticsAMAF().addAll(otherStatistics);
+        }
+
+        // the least proof (disproof) effort found by any of the workers, -1 means not computed yet
+        final int proofNumber = this.getProofNumber();
+        final int disproofNumber = this.getDisproofNumber();
+
+        if (other.getProofNumber() >= 0) {
+            arena.setProofNumber(
+                    this.id,
+                    proofNumber < 0 ? other.getProofNumber() : Integer.min(proofNumber, other.getProofNumber()));
+        }
+        if (other.getDisproofNumber() >= 0) {
+            arena.setDisproofNumber(
+                    this.id,
+                    disproofNumber < 0
+                            ? other.getDisproofNumber()
+                            : Integer.min(disproofNumber, other.getDisproofNumber()));
         }
     }
 }
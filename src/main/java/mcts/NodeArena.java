@@ -0,0 +1,482 @@
+package mcts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Struct-of-arrays store for the statistics of all nodes of the search trees.
+// Nodes are identified by int ids, the children of a node occupy a contiguous block of ids
+// (reserved when the node is expanded for the first time), so selection scans adjacent entries
+// of primitive arrays instead of following references. Storage is split into fixed-size pages
+// that are never moved, which lets several threads update the statistics atomically while
+// new pages are being added. Freed blocks are merged with their free neighbours and split again
+// by later allocations, ids freed at the end are given back together with the pages they no
+// longer need, so the memory follows the size of the trees when they are pruned or reused.
+public final class NodeArena {
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final double WIN_SCORE = 1.0;
+    private static final double LOSS_SCORE = -WIN_SCORE;
+
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle DOUBLE_ARRAY = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private static final class Page {
+        final int[] visitCounts = new int[PAGE_SIZE];
+
+        // stride of playerCount + 1 values per node, indexed by player
+        final double[] scoreSums;
+        final double[] pessimisticScores;
+        final double[] optimisticScores;
+
+        final int[] proofNumbers = new int[PAGE_SIZE];
+        final int[] disproofNumbers = new int[PAGE_SIZE];
+
+        // children block: first id, number of published children, block size
+        final int[] firstChildren = new int[PAGE_SIZE];
+        final int[] numChildren = new int[PAGE_SIZE];
+        final int[] maxChildren = new int[PAGE_SIZE];
+
+        // number of nodes sharing the statistics of this slot, used by the transposition table
+        final int[] refCounts = new int[PAGE_SIZE];
+
+        // statistics id of the node in this slot, so that batched selection does not need the handles
+        final int[] statsIds = new int[PAGE_SIZE];
+
+        // interned id of the move leading to the node in this slot, -1 for roots
+        final int[] moveIds = new int[PAGE_SIZE];
+
+        final Node[] nodes = new Node[PAGE_SIZE];
+
+        Page(final int stride) {
+            this.scoreSums = new double[PAGE_SIZE * stride];
+            this.pessimisticScores = new double[PAGE_SIZE * stride];
+            this.optimisticScores = new double[PAGE_SIZE * stride];
+        }
+    }
+
+    private final int playerCount;
+    private final int stride;
+
+    private volatile Page[] pages = new Page[0];
+
+    // guarded by this
+    private int nextId = 0;
+    private int numFreeSlots = 0;
+    private int numStatisticsSlots = 0;
+    // free ranges below nextId, never adjacent to each other: first id -> size, and size << 32 | first id for best fit
+    private final NavigableMap<Integer, Integer> freeRanges = new TreeMap<>();
+    private final NavigableSet<Long> freeRangesBySize = new TreeSet<>();
+
+    // block holding the slot of each tree root, a reused root keeps the slot it had in the children block of its former
+    // parent
+    private final Map<Integer, int[]> rootBlocks = new HashMap<>();
+
+    private TranspositionTable transpositionTable;
+
+    // the arena is created for every game, so are the move ids
+    private final MoveInterner moveInterner = new MoveInterner();
+
+    public NodeArena(final int playerCount) {
+        this.playerCount = playerCount;
+        this.stride = playerCount + 1;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    public void setTranspositionTable(final TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    public MoveInterner getMoveInterner() {
+        return moveInterner;
+    }
+
+    /** Allocation */
+
+    // Reserves a block of consecutive ids with freshly initialized statistics
+    public synchronized int allocateBlock(final int size) {
+        // the smallest free range that is large enough, the rest of it stays free
+        final Long range = freeRangesBySize.ceiling((long) size << 32);
+        final int firstId;
+
+        if (range != null) {
+            firstId = (int) range.longValue();
+            final int rangeSize = (int) (range >>> 32);
+
+            removeFreeRange(firstId, rangeSize);
+            if (rangeSize > size) {
+                addFreeRange(firstId + size, rangeSize - size);
+            }
+        } else {
+            firstId = nextId;
+            nextId += size;
+            ensureCapacity(nextId);
+        }
+
+        for (var id = firstId; id < firstId + size; id++) {
+            resetSlot(id);
+        }
+        return firstId;
+    }
+
+    // Reserves the block of the root of a new tree
+    public synchronized int allocateRoot() {
+        final int id = allocateBlock(1);
+        rootBlocks.put(id, new int[] {id, 1});
+        return id;
+    }
+
+    // Reserves a slot that only holds statistics shared through the transposition table, it is not a node
+    public synchronized int allocateStatisticsSlot() {
+        numStatisticsSlots++;
+        return allocateBlock(1);
+    }
+
+    public void releaseStatisticsSlot(final int id) {
+        synchronized (this) {
+            numStatisticsSlots--;
+        }
+        releaseBlock(id, 1);
+    }
+
+    public void releaseBlock(final int firstId, final int size) {
+        if (size == 0) {
+            return;
+        }
+
+        final List<Node> sharingNodes = new ArrayList<>();
+        synchronized (this) {
+            for (var id = firstId; id < firstId + size; id++) {
+                dropHandle(id, sharingNodes);
+            }
+            freeRange(firstId, size);
+        }
+        // outside of the lock, the transposition table allocates while holding its own lock
+        releaseSharedStatistics(sharingNodes);
+    }
+
+    // Releases all blocks below the given node, the node itself stays allocated
+    public void releaseDescendants(final int id) {
+        // the whole subtree is read before any of its blocks can be reused
+        final var stack = new ArrayDeque<Integer>();
+        final var blocks = new ArrayDeque<int[]>();
+        stack.push(id);
+
+        while (!stack.isEmpty()) {
+            final int current = stack.pop();
+            final int firstChild = getFirstChild(current);
+
+            if (firstChild >= 0) {
+                final int numChildren = getNumChildren(current);
+                for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+                    stack.push(childId);
+                }
+                blocks.push(new int[] {firstChild, getMaxChildren(current)});
+            }
+        }
+
+        setChildBlock(id, -1, 0);
+        for (final var block : blocks) {
+            releaseBlock(block[0], block[1]);
+        }
+    }
+
+    // Releases all blocks below the given node and drops its handle, the slot itself belongs to the block of its parent
+    public void releaseSubtree(final int id) {
+        releaseDescendants(id);
+
+        final List<Node> sharingNodes = new ArrayList<>();
+        synchronized (this) {
+            dropHandle(id, sharingNodes);
+        }
+        releaseSharedStatistics(sharingNodes);
+    }
+
+    // Tree reuse - the child becomes the root of its tree, all other children of the root have to be released already.
+    // The block of the old root is freed together with its handle, so are the slots of the children block except the
+    // one of the new root.
+    public void moveRoot(final int rootId, final int childId) {
+        final int firstChild = getFirstChild(rootId);
+        final int maxChildren = getMaxChildren(rootId);
+
+        final int[] rootBlock;
+        synchronized (this) {
+            rootBlock = rootBlocks.remove(rootId);
+            rootBlocks.put(childId, new int[] {childId, 1});
+        }
+
+        setChildBlock(rootId, -1, 0);
+        releaseBlock(rootBlock[0], rootBlock[1]);
+        releaseBlock(firstChild, childId - firstChild);
+        releaseBlock(childId + 1, firstChild + maxChildren - childId - 1);
+    }
+
+    // Releases a whole tree, including the block of its root
+    public void releaseTree(final int rootId) {
+        releaseDescendants(rootId);
+
+        final int[] rootBlock;
+        synchronized (this) {
+            rootBlock = rootBlocks.remove(rootId);
+        }
+        releaseBlock(rootBlock[0], rootBlock[1]);
+    }
+
+    // Number of nodes in the subtree of the given node, including the node itself
+    public int countSubtree(final int id) {
+        final var stack = new ArrayDeque<Integer>();
+        stack.push(id);
+
+        int count = 0;
+        while (!stack.isEmpty()) {
+            final int current = stack.pop();
+            count++;
+
+            final int numChildren = getNumChildren(current);
+            final int firstChild = getFirstChild(current);
+            for (var childId = firstChild; childId < firstChild + numChildren; childId++) {
+                stack.push(childId);
+            }
+        }
+        return count;
+    }
+
+    // Drops the handle, so that the node (and its context) can be garbage collected
+    private void dropHandle(final int id, final List<Node> sharingNodes) {
+        final var nodes = pages[id >>> PAGE_BITS].nodes;
+        final var node = nodes[id & PAGE_MASK];
+
+        if (node != null && node.getStatsId() != id) {
+            sharingNodes.add(node);
+        }
+        nodes[id & PAGE_MASK] = null;
+    }
+
+    private void releaseSharedStatistics(final List<Node> sharingNodes) {
+        for (final var node : sharingNodes) {
+            transpositionTable.release(node.getPositionHash(), node.getDepth(), node.getStatsId());
+        }
+    }
+
+    // Adds the ids to the free ranges, merged with the free ranges next to them. Ids at the end are given back instead,
+    // and the pages beyond twice the ones still in use are dropped.
+    private void freeRange(final int firstId, final int size) {
+        int start = firstId;
+        int end = firstId + size;
+
+        final var previous = freeRanges.lowerEntry(start);
+        if (previous != null && previous.getKey() + previous.getValue() == start) {
+            start = previous.getKey();
+            removeFreeRange(previous.getKey(), previous.getValue());
+        }
+
+        final Integer nextSize = freeRanges.get(end);
+        if (nextSize != null) {
+            removeFreeRange(end, nextSize);
+            end += nextSize;
+        }
+
+        if (end < nextId) {
+            addFreeRange(start, end - start);
+            return;
+        }
+
+        nextId = start;
+        final int numPages = (nextId + PAGE_SIZE - 1) >>> PAGE_BITS;
+        if (numPages < pages.length / 4) {
+            pages = Arrays.copyOf(pages, 2 * numPages);
+        }
+    }
+
+    private void addFreeRange(final int firstId, final int size) {
+        freeRanges.put(firstId, size);
+        freeRangesBySize.add((long) size << 32 | firstId);
+        numFreeSlots += size;
+    }
+
+    private void removeFreeRange(final int firstId, final int size) {
+        freeRanges.remove(firstId);
+        freeRangesBySize.remove((long) size << 32 | firstId);
+        numFreeSlots -= size;
+    }
+
+    // Whether the node still has its slot, it is not if it has been released with its subtree
+    public synchronized boolean contains(final Node node) {
+        final int id = node.getId();
+        return id < nextId && getNode(id) == node;
+    }
+
+    // Slots of nodes and of shared statistics
+    public synchronized int getNumAllocatedSlots() {
+        return nextId - numFreeSlots;
+    }
+
+    // Slots of nodes only, the shared statistics of the transposition table are not counted
+    public synchronized int getNumNodeSlots() {
+        return nextId - numFreeSlots - numStatisticsSlots;
+    }
+
+    // Slots of the pages held by the arena, allocated or not
+    public int getCapacity() {
+        return pages.length * PAGE_SIZE;
+    }
+
+    private void ensureCapacity(final int numIds) {
+        final int numPages = (numIds + PAGE_SIZE - 1) >>> PAGE_BITS;
+        if (numPages > pages.length) {
+            final var newPages = Arrays.copyOf(pages, Math.max(numPages, 2 * pages.length));
+            for (var i = pages.length; i < newPages.length; i++) {
+                newPages[i] = new Page(stride);
+            }
+            pages = newPages;
+        }
+    }
+
+    private void resetSlot(final int id) {
+        final var page = pages[id >>> PAGE_BITS];
+        final int slot = id & PAGE_MASK;
+
+        page.visitCounts[slot] = 0;
+        for (var p = 0; p < stride; p++) {
+            page.scoreSums[slot * stride + p] = 0.0;
+            page.pessimisticScores[slot * stride + p] = LOSS_SCORE;
+            page.optimisticScores[slot * stride + p] = WIN_SCORE;
+        }
+        page.proofNumbers[slot] = -1;
+        page.disproofNumbers[slot] = -1;
+        page.firstChildren[slot] = -1;
+        page.numChildren[slot] = 0;
+        page.maxChildren[slot] = 0;
+        page.refCounts[slot] = 0;
+        page.statsIds[slot] = id;
+        page.moveIds[slot] = -1;
+        page.nodes[slot] = null;
+    }
+
+    private Page page(final int id) {
+        return pages[id >>> PAGE_BITS];
+    }
+
+    /** Node handles */
+    public Node getNode(final int id) {
+        return page(id).nodes[id & PAGE_MASK];
+    }
+
+    void setNode(final int id, final Node node, final int moveId, final int maxChildren) {
+        final var page = page(id);
+        page.maxChildren[id & PAGE_MASK] = maxChildren;
+        page.statsIds[id & PAGE_MASK] = node.getStatsId();
+        page.moveIds[id & PAGE_MASK] = moveId;
+        page.nodes[id & PAGE_MASK] = node;
+    }
+
+    public int getStatsId(final int id) {
+        return page(id).statsIds[id & PAGE_MASK];
+    }
+
+    public int getMoveId(final int id) {
+        return page(id).moveIds[id & PAGE_MASK];
+    }
+
+    /** Statistics */
+    public int getVisitCount(final int id) {
+        return page(id).visitCounts[id & PAGE_MASK];
+    }
+
+    public void addVisits(final int id, final int visits) {
+        INT_ARRAY.getAndAdd(page(id).visitCounts, id & PAGE_MASK, visits);
+    }
+
+    public double getScoreSum(final int id, final int player) {
+        return page(id).scoreSums[(id & PAGE_MASK) * stride + player];
+    }
+
+    public void addScore(final int id, final int player, final double delta) {
+        final var scoreSums = page(id).scoreSums;
+        final int index = (id & PAGE_MASK) * stride + player;
+
+        double current;
+        do {
+            current = (double) DOUBLE_ARRAY.getVolatile(scoreSums, index);
+        } while (!DOUBLE_ARRAY.weakCompareAndSet(scoreSums, index, current, current + delta));
+    }
+
+    public double getPessimisticScore(final int id, final int player) {
+        return page(id).pessimisticScores[(id & PAGE_MASK) * stride + player];
+    }
+
+    public void setPessimisticScore(final int id, final int player, final double score) {
+        page(id).pessimisticScores[(id & PAGE_MASK) * stride + player] = score;
+    }
+
+    public double getOptimisticScore(final int id, final int player) {
+        return page(id).optimisticScores[(id & PAGE_MASK) * stride + player];
+    }
+
+    public void setOptimisticScore(final int id, final int player, final double score) {
+        page(id).optimisticScores[(id & PAGE_MASK) * stride + player] = score;
+    }
+
+    public int getProofNumber(final int id) {
+        return page(id).proofNumbers[id & PAGE_MASK];
+    }
+
+    public void setProofNumber(final int id, final int proofNumber) {
+        page(id).proofNumbers[id & PAGE_MASK] = proofNumber;
+    }
+
+    public int getDisproofNumber(final int id) {
+        return page(id).disproofNumbers[id & PAGE_MASK];
+    }
+
+    public void setDisproofNumber(final int id, final int disproofNumber) {
+        page(id).disproofNumbers[id & PAGE_MASK] = disproofNumber;
+    }
+
+    // Returns the number of references after the update
+    public int addReferences(final int id, final int delta) {
+        return (int) INT_ARRAY.getAndAdd(page(id).refCounts, id & PAGE_MASK, delta) + delta;
+    }
+
+    /** Children */
+    public int getFirstChild(final int id) {
+        return page(id).firstChildren[id & PAGE_MASK];
+    }
+
+    public int getNumChildren(final int id) {
+        return (int) INT_ARRAY.getVolatile(page(id).numChildren, id & PAGE_MASK);
+    }
+
+    public int getMaxChildren(final int id) {
+        return page(id).maxChildren[id & PAGE_MASK];
+    }
+
+    // Publishes the children block; children written before this call are visible to all threads afterwards
+    void setChildBlock(final int id, final int firstChild, final int numChildren) {
+        final var page = page(id);
+        page.firstChildren[id & PAGE_MASK] = firstChild;
+        INT_ARRAY.setVolatile(page.numChildren, id & PAGE_MASK, numChildren);
+    }
+
+    void setMaxChildren(final int id, final int maxChildren) {
+        page(id).maxChildren[id & PAGE_MASK] = maxChildren;
+    }
+}
@@ -0,0 +1,42 @@
+package mcts;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder event of one ExplainableMcts.selectAction call, its duration is the thinking time
+@Name("ludii.mcts.Search")
+@Label("MCTS Search")
+@Category({"Ludii", "MCTS"})
+@Description("Search of one move by ExplainableMcts")
+@StackTrace(false)
+public final class SearchEvent extends jdk.jfr.Event {
+    @Label("Agent")
+    public String agent;
+
+    @Label("Iterations")
+    public int iterations;
+
+    @Label("Ponder Iterations")
+    @Description("Iterations performed during the opponent's turn and reused by this search")
+    public int ponderIterations;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Kept Nodes")
+    @Description("Nodes reused from the tree of the previous move")
+    public int keptNodes;
+
+    @Label("Selected Move")
+    public String selectedMove;
+
+    @Label("Move Value")
+    public double moveValue;
+
+    @Label("Solved")
+    @Description("The root is solved by the score bounds or proved by the proof numbers")
+    public boolean solved;
+}
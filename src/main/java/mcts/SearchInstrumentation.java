@@ -0,0 +1,221 @@
+package mcts;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Measurements of the search of one move. Playout lengths, depths and new nodes are counted in every iteration,
+// the phases are timed with System.nanoTime only in every SAMPLE_INTERVAL-th iteration and scaled up to all of them.
+// The bytes allocated by the search threads are taken from the per-thread allocation counters of the JVM at the start
+// and the end of the search.
+public final class SearchInstrumentation {
+    public static final int SAMPLE_INTERVAL = 32;
+
+    public enum Phase {
+        SELECTION,
+        EXPANSION,
+        SIMULATION,
+        BACKPROPAGATION
+    }
+
+    private static final int NUM_PHASES = Phase.values().length;
+
+    private final LongAdder[] phaseNanos = new LongAdder[NUM_PHASES];
+    private final LongAdder numSampledIterations = new LongAdder();
+    private final LongAdder numPlayouts = new LongAdder();
+    private final LongAdder playoutLengthSum = new LongAdder();
+    private final LongAdder depthSum = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder numNewNodes = new LongAdder();
+
+    // allocation counters of the search threads at the start of the search, -1 if the JVM does not provide them
+    private long[] startThreadIds = new long[0];
+    private long[] startAllocatedBytes = new long[0];
+    private long allocatedBytes = -1L;
+
+    public SearchInstrumentation() {
+        for (var i = 0; i < NUM_PHASES; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    public void reset() {
+        for (final var nanos : phaseNanos) {
+            nanos.reset();
+        }
+        numSampledIterations.reset();
+        numPlayouts.reset();
+        playoutLengthSum.reset();
+        depthSum.reset();
+        maxDepth.reset();
+        numNewNodes.reset();
+        startThreadIds = new long[0];
+        startAllocatedBytes = new long[0];
+        allocatedBytes = -1L;
+    }
+
+    public static boolean isSampled(final int iteration) {
+        return iteration % SAMPLE_INTERVAL == 0;
+    }
+
+    /** Recording */
+
+    // System.nanoTime at the start of a sampled iteration and at the end of each of its phases
+    public void addSample(
+            final long start,
+            final long selectionEnd,
+            final long expansionEnd,
+            final long simulationEnd,
+            final long backpropagationEnd) {
+        phaseNanos[Phase.SELECTION.ordinal()].add(selectionEnd - start);
+        phaseNanos[Phase.EXPANSION.ordinal()].add(expansionEnd - selectionEnd);
+        phaseNanos[Phase.SIMULATION.ordinal()].add(simulationEnd - expansionEnd);
+        phaseNanos[Phase.BACKPROPAGATION.ordinal()].add(backpropagationEnd - simulationEnd);
+        numSampledIterations.increment();
+    }
+
+    // depth - number of moves from the search root to the selected node
+    public void addIteration(final int depth, final boolean newNode) {
+        depthSum.add(depth);
+        maxDepth.accumulate(depth);
+        if (newNode) {
+            numNewNodes.increment();
+        }
+    }
+
+    public void addPlayout(final int length) {
+        playoutLengthSum.add(length);
+        numPlayouts.increment();
+    }
+
+    // Called by the searching thread before the search, with the ids of all threads that may run parts of it
+    public void startAllocationCount(final long[] threadIds) {
+        startThreadIds = threadIds;
+        startAllocatedBytes = getThreadAllocatedBytes(threadIds);
+    }
+
+    // Called by the searching thread after the search, threads created since the start count from 0
+    public void endAllocationCount(final long[] threadIds) {
+        final long[] endAllocatedBytes = getThreadAllocatedBytes(threadIds);
+        if (endAllocatedBytes == null || startAllocatedBytes == null) {
+            allocatedBytes = -1L;
+            return;
+        }
+
+        long sum = 0L;
+        for (var i = 0; i < threadIds.length; i++) {
+            if (endAllocatedBytes[i] < 0) {
+                continue;
+            }
+
+            long start = 0L;
+            for (var j = 0; j < startThreadIds.length; j++) {
+                if (startThreadIds[j] == threadIds[i]) {
+                    start = Math.max(0L, startAllocatedBytes[j]);
+                    break;
+                }
+            }
+            sum += endAllocatedBytes[i] - start;
+        }
+        allocatedBytes = sum;
+    }
+
+    // Bytes allocated so far by each of the threads (-1 for threads that ended), null if not supported by the JVM
+    private static long[] getThreadAllocatedBytes(final long[] threadIds) {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getThreadAllocatedBytes(threadIds);
+        }
+        return null;
+    }
+
+    /** Reporting */
+
+    public MoveStatistics getMoveStatistics(
+            final int numIterations,
+            final int numAllocatedSlots,
+            final int amafTableSize,
+            final int mastTableSize,
+            final int nstTableSize) {
+        final long numSamples = numSampledIterations.sum();
+        final var estimatedNanos = new long[NUM_PHASES];
+        for (var i = 0; i < NUM_PHASES; i++) {
+            estimatedNanos[i] = numSamples > 0 ? phaseNanos[i].sum() * numIterations / numSamples : 0L;
+        }
+
+        final long playouts = numPlayouts.sum();
+        return new MoveStatistics(
+                numIterations,
+                numSamples,
+                estimatedNanos[Phase.SELECTION.ordinal()],
+                estimatedNanos[Phase.EXPANSION.ordinal()],
+                estimatedNanos[Phase.SIMULATION.ordinal()],
+                estimatedNanos[Phase.BACKPROPAGATION.ordinal()],
+                playouts,
+                playouts > 0 ? (double) playoutLengthSum.sum() / playouts : 0.0,
+                numIterations > 0 ? (double) depthSum.sum() / numIterations : 0.0,
+                (int) maxDepth.get(),
+                numNewNodes.sum(),
+                numAllocatedSlots,
+                allocatedBytes,
+                amafTableSize,
+                mastTableSize,
+                nstTableSize);
+    }
+
+    // Phase times are estimates for all iterations, from numSampledIterations timed ones. numAllocatedSlots is the
+    // number of node slots in use in the arena, allocatedBytes the heap allocation of the search threads (-1 if the
+    // JVM does not measure it).
+    public record MoveStatistics(
+            int numIterations,
+            long numSampledIterations,
+            long selectionNanos,
+            long expansionNanos,
+            long simulationNanos,
+            long backpropagationNanos,
+            long numPlayouts,
+            double averagePlayoutLength,
+            double averageDepth,
+            int maxDepth,
+            long numNewNodes,
+            int numAllocatedSlots,
+            long allocatedBytes,
+            int amafTableSize,
+            int mastTableSize,
+            int nstTableSize) {
+
+        @Override
+        public String toString() {
+            final double totalNanos =
+                    Math.max(1L, selectionNanos + expansionNanos + simulationNanos + backpropagationNanos);
+            return String.format(
+                    "Search phases (%d of %d iterations timed): selection %.1f ms (%.1f%%), "
+                            + "expansion %.1f ms (%.1f%%), simulation %.1f ms (%.1f%%), "
+                            + "backpropagation %.1f ms (%.1f%%). "
+                            + "Playouts: %d, average length %.1f. Selection depth: average %.1f, max %d. "
+                            + "Nodes: %d new, %d arena slots in use. Allocated: %s. "
+                            + "Table sizes: AMAF %d, MAST %d, NST %d.",
+                    numSampledIterations,
+                    numIterations,
+                    selectionNanos / 1e6,
+                    100.0 * selectionNanos / totalNanos,
+                    expansionNanos / 1e6,
+                    100.0 * expansionNanos / totalNanos,
+                    simulationNanos / 1e6,
+                    100.0 * simulationNanos / totalNanos,
+                    backpropagationNanos / 1e6,
+                    100.0 * backpropagationNanos / totalNanos,
+                    numPlayouts,
+                    averagePlayoutLength,
+                    averageDepth,
+                    maxDepth,
+                    numNewNodes,
+                    numAllocatedSlots,
+                    allocatedBytes >= 0 ? String.format("%.1f MB", allocatedBytes / 1e6) : "not measured",
+                    amafTableSize,
+                    mastTableSize,
+                    nstTableSize);
+        }
+    }
+}
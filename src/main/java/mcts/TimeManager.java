@@ -0,0 +1,108 @@
+package mcts;
+
+// Decides when the search of a move can stop before maxSeconds (which is never exceeded).
+// Every move gets the base share of maxSeconds plus the time saved on earlier moves spread over the estimated number
+// of our remaining moves (from the average length of the playouts that reached the end of the game, playouts cut off
+// early by the playout policy say nothing about it). The search stops early when the most visited root move
+// cannot be overtaken in the root visits left until the soft deadline, estimated from the measured visits per second,
+// and the deadline is extended once when it is reached while the two most visited moves are close.
+// With the default base share of 1 every move may use all of maxSeconds and only stops early once the race between
+// the root moves is decided. A smaller share plans every move shorter and spends the saved time on later moves, or on
+// the extensions of close races.
+public class TimeManager {
+    // the two most visited moves are close when the second has at least this share of the visits of the first
+    private static final double CLOSE_RATIO = 0.9;
+
+    // an extension adds this share of the time already spent
+    private static final double EXTENSION_SHARE = 0.5;
+
+    // our remaining moves assumed before any playout reached the end of the game
+    private static final int DEFAULT_REMAINING_MOVES = 20;
+
+    // share of maxSeconds every move gets before the saved time is added, in (0, 1]
+    private double baseShare;
+
+    private int playerCount = 2;
+
+    // time not spent relative to the base share, over all moves of the game so far
+    private long savedMillis = 0;
+    private double averagePlayoutLength = -1.0;
+
+    private long moveStartTime;
+    private long baseMillis;
+    private long hardStopTime;
+    private long softStopTime;
+    private boolean extended;
+
+    public TimeManager(final double baseShare) {
+        setBaseShare(baseShare);
+    }
+
+    public synchronized double getBaseShare() {
+        return baseShare;
+    }
+
+    // takes effect with the next move
+    public synchronized void setBaseShare(final double baseShare) {
+        if (!(baseShare > 0.0 && baseShare <= 1.0)) {
+            throw new IllegalArgumentException("Base share must be in (0, 1], got: " + baseShare);
+        }
+        this.baseShare = baseShare;
+    }
+
+    public synchronized void reset(final int playerCount) {
+        this.playerCount = Math.max(1, playerCount);
+        this.savedMillis = 0;
+        this.averagePlayoutLength = -1.0;
+    }
+
+    // Returns the soft deadline of the move
+    public synchronized long startMove(final long now, final double maxSeconds) {
+        final long maxMillis = (long) (maxSeconds * 1000L);
+        final double remainingMoves = averagePlayoutLength < 0.0
+                ? DEFAULT_REMAINING_MOVES
+                : Math.max(1.0, averagePlayoutLength / playerCount);
+
+        this.moveStartTime = now;
+        this.baseMillis = (long) (baseShare * maxMillis);
+        this.hardStopTime = now + maxMillis;
+        this.softStopTime = now + Math.clamp(baseMillis + (long) (savedMillis / remainingMoves), 0L, maxMillis);
+        this.extended = false;
+
+        return softStopTime;
+    }
+
+    // numVisits - visits added to the root moves by this move so far.
+    // Returns the updated soft deadline, now or earlier means stop.
+    public synchronized long update(
+            final long now, final long numVisits, final int bestVisits, final int secondVisits) {
+        final long elapsed = Math.max(1L, now - moveStartTime);
+
+        if (now >= softStopTime) {
+            if (!extended && secondVisits >= CLOSE_RATIO * bestVisits) {
+                softStopTime = Math.min(hardStopTime, now + (long) (EXTENSION_SHARE * elapsed));
+                extended = true;
+            }
+            return softStopTime;
+        }
+
+        final double visitsPerMilli = (double) numVisits / elapsed;
+        final double remainingVisits = visitsPerMilli * (softStopTime - now);
+
+        if (bestVisits - secondVisits > remainingVisits) {
+            // the most visited move cannot be overtaken anymore, and no extension is given afterwards
+            softStopTime = now;
+            extended = true;
+        }
+        return softStopTime;
+    }
+
+    // playoutLength - average number of moves from the root to the end of the game in the playouts of this move that
+    // reached it, -1 if none did (the previous estimate is kept then)
+    public synchronized void endMove(final long now, final double playoutLength) {
+        savedMillis += baseMillis - (now - moveStartTime);
+        if (playoutLength > 0.0) {
+            averagePlayoutLength = playoutLength;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package mcts;
+
+import java.util.Arrays;
+
+// Bounded table of the statistics shared by the nodes of the same position (equal state hash and number of moves),
+// so that positions reached by different move orders are evaluated together. The tree of node handles is kept,
+// only their statistics ids point to a common arena slot, so backpropagation still follows the parent links and
+// updates every position on the path once. The slot holds the visit count and the score sums; score bounds and
+// proof numbers stay in the slot of each handle, since every handle has its own children and unexpanded moves.
+// Buckets hold two entries; when both are taken, the less visited one is replaced. Nodes that already share the
+// replaced statistics keep them, the slot is freed when the last of them is released.
+public class TranspositionTable {
+    private final NodeArena arena;
+
+    private final int bucketMask;
+    private final long[] hashes;
+    private final int[] depths;
+    private final int[] statsIds;
+
+    // capacity - maximum number of entries, rounded up to a power of two
+    public TranspositionTable(final NodeArena arena, final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+
+        this.arena = arena;
+        this.bucketMask = size - 2;
+        this.hashes = new long[size];
+        this.depths = new int[size];
+        this.statsIds = new int[size];
+
+        Arrays.fill(this.statsIds, -1);
+    }
+
+    // Returns the statistics id for the position, a new arena slot is allocated for positions not in the table
+    public synchronized int acquire(final long hash, final int depth) {
+        final int bucket = (int) (hash ^ (hash >>> 32)) & bucketMask;
+
+        for (var i = bucket; i < bucket + 2; i++) {
+            if (statsIds[i] >= 0 && hashes[i] == hash && depths[i] == depth) {
+                arena.addReferences(statsIds[i], 1);
+                return statsIds[i];
+            }
+        }
+
+        final int statsId = arena.allocateStatisticsSlot();
+        arena.addReferences(statsId, 1);
+
+        final int entry;
+        if (statsIds[bucket] < 0) {
+            entry = bucket;
+        } else if (statsIds[bucket + 1] < 0) {
+            entry = bucket + 1;
+        } else {
+            entry = arena.getVisitCount(statsIds[bucket]) <= arena.getVisitCount(statsIds[bucket + 1])
+                    ? bucket
+                    : bucket + 1;
+        }
+
+        hashes[entry] = hash;
+        depths[entry] = depth;
+        statsIds[entry] = statsId;
+        return statsId;
+    }
+
+    public synchronized void release(final long hash, final int depth, final int statsId) {
+        if (arena.addReferences(statsId, -1) > 0) {
+            return;
+        }
+
+        final int bucket = (int) (hash ^ (hash >>> 32)) & bucketMask;
+        for (var i = bucket; i < bucket + 2; i++) {
+            if (statsIds[i] == statsId) {
+                statsIds[i] = -1;
+            }
+        }
+        arena.releaseStatisticsSlot(statsId);
+    }
+}
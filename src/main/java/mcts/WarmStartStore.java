@@ -0,0 +1,697 @@
+package mcts;
+
+import game.Game;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import other.move.Move;
+
+// MAST and NST statistics kept on disk between games, one file per game and ruleset. The file is memory-mapped when
+// a game starts and decoded by load, before the search threads of the first move start, and its statistics are
+// merged into the global tables as soon as all moves of an entry have been interned. The playout policies intern the
+// moves of the file as soon as they see them (see MoveInterner.getKnownId), so their statistics inform the playouts
+// before the moves are played. Moves are stored by their decision (see MoveInterner), so they can be matched across
+// games. A file that can not be read completely, or is not of this format, is ignored as a whole.
+// At the end of the game the statistics of the tables plus the entries of the file whose moves did not occur in the
+// game are decayed once by the decay factor, limited to the capacity (the most visited entries of each kind are kept)
+// and written (atomically) to the next generation of the file. The mapped file is never replaced, which some platforms
+// do not allow while the mapping is alive; older generations are deleted once they can be.
+// Saves of a game are serialized by a lock per file name within the JVM and by a file lock between processes. When
+// another agent of the game (e.g. the opponent in self-play) has saved a newer generation since the file was mapped,
+// that generation already holds the decayed statistics of the mapped file: only the statistics gained in this game
+// are decayed and added to it.
+//
+// File name: game and ruleset, generation, extension (e.g. Hex.3.stats). Format (big-endian): magic, version, player
+// count, number of actions, number of n-grams, then the actions (decision, visit count, score sum of every player)
+// and the n-grams (length, decisions newest move first, visit count, score sum of every player). A decision is 5 ints:
+// type, mover, from, to, state.
+public final class WarmStartStore implements MoveInterner.NewMoveListener {
+    private static final int MAGIC = 0x4C584D53; // "LXMS"
+    private static final int VERSION = 1;
+    private static final String FILE_EXTENSION = ".stats";
+    private static final String LOCK_EXTENSION = ".lock";
+
+    // monitor of each lock file, the file lock is held by the JVM and can not be taken twice
+    private static final Map<Path, Object> SAVE_LOCKS = new ConcurrentHashMap<>();
+
+    private static final int NORMAL = 0;
+    private static final int ORIENTED = 1;
+    private static final int PASS = 2;
+    private static final int SWAP = 3;
+
+    private record Decision(int type, int mover, int from, int to, int state) {
+        static Decision of(final Move move) {
+            if (move.isPass()) {
+                return new Decision(PASS, move.mover(), 0, 0, 0);
+            }
+            if (move.isSwap()) {
+                return new Decision(SWAP, move.mover(), 0, 0, 0);
+            }
+
+            final int from = move.fromNonDecision();
+            final int to = move.toNonDecision();
+            if (move.isOrientedMove()) {
+                return new Decision(ORIENTED, move.mover(), from, to, move.stateNonDecision());
+            }
+            // from and to are unordered
+            return new Decision(NORMAL, move.mover(), Math.min(from, to), Math.max(from, to), move.stateNonDecision());
+        }
+
+        long hash() {
+            return WarmStartStore.hash(type, mover, from, to, state);
+        }
+
+        static Decision read(final ByteBuffer buffer) {
+            return new Decision(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            out.writeInt(type);
+            out.writeInt(mover);
+            out.writeInt(from);
+            out.writeInt(to);
+            out.writeInt(state);
+        }
+    }
+
+    // Hash of the decision of the move, equal to Decision.of(move).hash() but without allocating
+    private static long hash(final Move move) {
+        if (move.isPass()) {
+            return hash(PASS, move.mover(), 0, 0, 0);
+        }
+        if (move.isSwap()) {
+            return hash(SWAP, move.mover(), 0, 0, 0);
+        }
+
+        final int from = move.fromNonDecision();
+        final int to = move.toNonDecision();
+        if (move.isOrientedMove()) {
+            return hash(ORIENTED, move.mover(), from, to, move.stateNonDecision());
+        }
+        return hash(NORMAL, move.mover(), Math.min(from, to), Math.max(from, to), move.stateNonDecision());
+    }
+
+    private static long hash(final int type, final int mover, final int from, final int to, final int state) {
+        long h = type;
+        h = h * 0x9E3779B97F4A7C15L + mover;
+        h = h * 0x9E3779B97F4A7C15L + from;
+        h = h * 0x9E3779B97F4A7C15L + to;
+        h = h * 0x9E3779B97F4A7C15L + state;
+
+        // finalizer of MurmurHash3, so that the low bits used by DecisionSet depend on all fields
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    // Open-addressing set of the hashes of the decisions of the file, so that the moves of every playout step can be
+    // matched without allocating. Decisions with the same 64-bit hash are taken as equal, which at worst interns a move
+    // without statistics.
+    private static final class DecisionSet {
+        // 0 - empty slot, hashes equal to 0 are stored as 1
+        private final long[] hashes;
+        private final int mask;
+        private final int size;
+
+        DecisionSet(final Collection<Decision> decisions) {
+            // kept at most half full
+            int capacity = 2;
+            while (capacity < 2 * decisions.size()) {
+                capacity <<= 1;
+            }
+
+            this.hashes = new long[capacity];
+            this.mask = capacity - 1;
+            this.size = decisions.size();
+
+            for (final var decision : decisions) {
+                final long hash = nonZero(decision.hash());
+                var slot = slot(hash);
+                while (hashes[slot] != 0L && hashes[slot] != hash) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = hash;
+            }
+        }
+
+        boolean contains(final long decisionHash) {
+            if (size == 0) {
+                return false;
+            }
+
+            final long hash = nonZero(decisionHash);
+            for (var slot = slot(hash); hashes[slot] != 0L; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int slot(final long hash) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long nonZero(final long hash) {
+            return hash != 0L ? hash : 1L;
+        }
+    }
+
+    // Entry of the file, merged into its table once the ids of all its moves are known
+    private static final class Entry {
+        final Decision[] decisions;
+        final int visitCount;
+        final double[] scoreSums;
+        final int[] moveIds;
+        int numUnresolved;
+        boolean merged = false;
+
+        Entry(final Decision[] decisions, final int visitCount, final double[] scoreSums) {
+            this.decisions = decisions;
+            this.visitCount = visitCount;
+            this.scoreSums = scoreSums;
+            this.moveIds = new int[decisions.length];
+        }
+    }
+
+    // Entries of a file by decision, an n-gram is listed once for every distinct move
+    private record Contents(
+            Map<Decision, Entry> actionEntries, Map<Decision, List<Entry>> nGramEntries, List<Entry> allNGramEntries) {
+        static Contents empty() {
+            return new Contents(Map.of(), Map.of(), List.of());
+        }
+
+        boolean isEmpty() {
+            return actionEntries.isEmpty() && allNGramEntries.isEmpty();
+        }
+    }
+
+    private final Path directory;
+    private final String baseName;
+    // generation of the mapped file, -1 if there is none
+    private final int generation;
+    private final int playerCount;
+    private final ActionStatsTable actionStats;
+    private final NGramStatsTable nGramStats;
+    private final double decay;
+    // maximum number of saved actions and of saved n-grams, 0 - no limit
+    private final int capacity;
+
+    // mapped file, null once decoded or if there is none
+    private ByteBuffer buffer;
+
+    // entries of the file, empty until it is decoded
+    private Contents contents = Contents.empty();
+
+    // decisions of all entries of the file, replaced once when it is decoded
+    private volatile DecisionSet knownDecisions = new DecisionSet(List.of());
+
+    private WarmStartStore(
+            final Path directory,
+            final String baseName,
+            final int generation,
+            final int playerCount,
+            final ActionStatsTable actionStats,
+            final NGramStatsTable nGramStats,
+            final double decay,
+            final int capacity,
+            final ByteBuffer buffer) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.generation = generation;
+        this.playerCount = playerCount;
+        this.actionStats = actionStats;
+        this.nGramStats = nGramStats;
+        this.decay = decay;
+        this.capacity = Math.max(0, capacity);
+        this.buffer = buffer;
+    }
+
+    // Maps the latest file of the game (if there is one), load reads it. Both tables have to use the same move
+    // interner. The decay factor and the capacity are applied when the statistics are saved.
+    public static WarmStartStore open(
+            final Path directory,
+            final Game game,
+            final ActionStatsTable actionStats,
+            final NGramStatsTable nGramStats,
+            final double decay,
+            final int capacity)
+            throws IOException {
+        final int playerCount = game.players().count();
+        final var baseName = getBaseName(game);
+        final int generation = findLatestGeneration(directory, baseName);
+
+        ByteBuffer buffer = null;
+        if (generation >= 0) {
+            try (var channel = FileChannel.open(getPath(directory, baseName, generation), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        return new WarmStartStore(
+                directory, baseName, generation, playerCount, actionStats, nGramStats, decay, capacity, buffer);
+    }
+
+    private static String getBaseName(final Game game) {
+        final var ruleset = game.getRuleset();
+        final var name = ruleset != null && ruleset.heading() != null
+                ? game.name() + "-" + ruleset.heading()
+                : game.name();
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static Path getPath(final Path directory, final String baseName, final int generation) {
+        return directory.resolve(baseName + "." + generation + FILE_EXTENSION);
+    }
+
+    // Returns the generation of the file name, or -1 if it is not a file of the game
+    private static int parseGeneration(final String fileName, final String baseName) {
+        final var prefix = baseName + ".";
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(FILE_EXTENSION)) {
+            return -1;
+        }
+
+        final var generation = fileName.substring(prefix.length(), fileName.length() - FILE_EXTENSION.length());
+        if (generation.isEmpty() || generation.length() > 9 || !generation.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Integer.parseInt(generation);
+    }
+
+    private static List<Path> listFiles(final Path directory, final String baseName) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            // the base name contains no glob characters
+            try (var stream = Files.newDirectoryStream(directory, baseName + ".*" + FILE_EXTENSION)) {
+                for (final var file : stream) {
+                    if (parseGeneration(file.getFileName().toString(), baseName) >= 0) {
+                        files.add(file);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static int findLatestGeneration(final Path directory, final String baseName) throws IOException {
+        int latest = -1;
+        for (final var file : listFiles(directory, baseName)) {
+            latest = Math.max(latest, parseGeneration(file.getFileName().toString(), baseName));
+        }
+        return latest;
+    }
+
+    // Reads the mapped file and merges its entries into the tables as their moves are interned, starting with the moves
+    // interned so far. Called before the search threads start, so that they never wait for the file to be decoded.
+    public void load() {
+        synchronized (this) {
+            if (buffer == null) {
+                return;
+            }
+            decode();
+            if (contents.isEmpty()) {
+                // nothing to merge, the lookups of the playouts are left without a listener
+                return;
+            }
+        }
+        // outside of the lock of the store, the interner notifies it under its own lock
+        actionStats.getMoveInterner().setNewMoveListener(this);
+    }
+
+    @Override
+    public synchronized void moveInterned(final int moveId, final Move move) {
+        resolve(moveId, move);
+    }
+
+    @Override
+    public boolean hasStatistics(final Move move) {
+        return knownDecisions.contains(hash(move));
+    }
+
+    // Reads all entries of the mapped file, a file that can not be read completely is ignored
+    private void decode() {
+        final var input = buffer;
+        buffer = null;
+
+        try {
+            contents = read(input, playerCount);
+        } catch (IOException e) {
+            // the next generation is written at the end of the game
+            System.err.println("WARNING: ignoring statistics file " + getPath(directory, baseName, generation) + ": "
+                    + e.getMessage());
+            return;
+        }
+
+        final var decisions = new HashSet<>(contents.actionEntries().keySet());
+        decisions.addAll(contents.nGramEntries().keySet());
+        knownDecisions = new DecisionSet(decisions);
+    }
+
+    // Reads all entries of a file, or fails if the file is not a complete file of the format
+    private static Contents read(final ByteBuffer input, final int playerCount) throws IOException {
+        try {
+            if (input.getInt() != MAGIC || input.getInt() != VERSION) {
+                throw new IOException("unknown format");
+            }
+            final int filePlayerCount = input.getInt();
+            if (filePlayerCount != playerCount) {
+                throw new IOException("statistics of " + filePlayerCount + " players");
+            }
+
+            final int numActions = input.getInt();
+            final int numNGrams = input.getInt();
+            if (numActions < 0 || numNGrams < 0) {
+                throw new IOException("negative number of entries");
+            }
+
+            final var contents = new Contents(new HashMap<>(), new HashMap<>(), new ArrayList<>());
+            for (var i = 0; i < numActions; i++) {
+                final var decision = Decision.read(input);
+                contents.actionEntries().put(decision, readEntry(input, new Decision[] {decision}, playerCount));
+            }
+
+            for (var i = 0; i < numNGrams; i++) {
+                final int n = input.getInt();
+                if (n <= 0) {
+                    throw new IOException("n-gram of length " + n);
+                }
+
+                final var decisions = new Decision[n];
+                for (var k = 0; k < n; k++) {
+                    decisions[k] = Decision.read(input);
+                }
+
+                final var entry = readEntry(input, decisions, playerCount);
+                contents.allNGramEntries().add(entry);
+                for (final var decision : decisions) {
+                    final var entries = contents.nGramEntries().computeIfAbsent(decision, k -> new ArrayList<>());
+                    if (entries.isEmpty() || entries.getLast() != entry) {
+                        entries.add(entry);
+                        entry.numUnresolved++;
+                    }
+                }
+            }
+
+            if (input.hasRemaining()) {
+                throw new IOException(input.remaining() + " bytes after the last entry");
+            }
+            return contents;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated file", e);
+        }
+    }
+
+    private static Entry readEntry(final ByteBuffer input, final Decision[] decisions, final int playerCount) {
+        final int visitCount = input.getInt();
+        final var scoreSums = new double[playerCount + 1];
+        for (var p = 1; p <= playerCount; p++) {
+            scoreSums[p] = input.getDouble();
+        }
+        return new Entry(decisions, visitCount, scoreSums);
+    }
+
+    private void resolve(final int moveId, final Move move) {
+        final var decision = Decision.of(move);
+
+        final var actionEntry = contents.actionEntries().get(decision);
+        if (actionEntry != null && !actionEntry.merged) {
+            actionEntry.merged = true;
+            actionStats.merge(moveId, actionEntry.visitCount, actionEntry.scoreSums);
+        }
+
+        final var entries = contents.nGramEntries().get(decision);
+        if (entries == null) {
+            return;
+        }
+
+        for (final var entry : entries) {
+            if (entry.numUnresolved == 0) {
+                continue;
+            }
+            for (var k = 0; k < entry.decisions.length; k++) {
+                if (entry.decisions[k].equals(decision)) {
+                    entry.moveIds[k] = moveId;
+                }
+            }
+
+            if (--entry.numUnresolved == 0 && entry.decisions.length <= nGramStats.getMaxNGramLength()) {
+                entry.merged = true;
+                nGramStats.merge(entry.moveIds, entry.moveIds.length, entry.visitCount, entry.scoreSums);
+            }
+        }
+    }
+
+    // Statistics of an action or an n-gram to be saved
+    private record Saved(Decision[] decisions, int visitCount, double[] scoreSums) {}
+
+    // Writes the statistics of the tables and the entries of the file that were not merged into them to the next
+    // generation of the file, or adds the statistics gained in this game to a generation saved since
+    public synchronized void save() throws IOException {
+        if (buffer != null) {
+            // no search has loaded the file, its entries are matched against the moves interned so far
+            decode();
+            final var moveInterner = actionStats.getMoveInterner();
+            for (var moveId = 0; moveId < moveInterner.size(); moveId++) {
+                resolve(moveId, moveInterner.getMove(moveId));
+            }
+        }
+
+        final var absoluteDirectory = directory.toAbsolutePath();
+        Files.createDirectories(absoluteDirectory);
+
+        final var lockFile = absoluteDirectory.resolve(baseName + LOCK_EXTENSION);
+        synchronized (SAVE_LOCKS.computeIfAbsent(lockFile, k -> new Object())) {
+            try (var channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    var lock = channel.lock()) {
+                final int latest = Math.max(generation, findLatestGeneration(absoluteDirectory, baseName));
+                final var newest =
+                        latest > generation ? readNewest(getPath(absoluteDirectory, baseName, latest)) : null;
+
+                final List<Saved> actions = new ArrayList<>();
+                final List<Saved> nGrams = new ArrayList<>();
+                addTableStatistics(actions, nGrams, newest != null);
+
+                if (newest == null) {
+                    for (final var entry : contents.actionEntries().values()) {
+                        if (!entry.merged) {
+                            addSaved(actions, entry.decisions, entry.visitCount, entry.scoreSums, null);
+                        }
+                    }
+                    for (final var entry : contents.allNGramEntries()) {
+                        if (!entry.merged) {
+                            addSaved(nGrams, entry.decisions, entry.visitCount, entry.scoreSums, null);
+                        }
+                    }
+                    write(absoluteDirectory, latest + 1, limit(actions), limit(nGrams));
+                } else {
+                    write(
+                            absoluteDirectory,
+                            latest + 1,
+                            limit(sum(newest.actionEntries().values(), actions)),
+                            limit(sum(newest.allNGramEntries(), nGrams)));
+                }
+            }
+        }
+    }
+
+    // Adds the decayed statistics of the tables. With gainedOnly, the statistics of the merged entries of the file are
+    // subtracted first, leaving what was gained in this game.
+    private void addTableStatistics(final List<Saved> actions, final List<Saved> nGrams, final boolean gainedOnly) {
+        final var moveInterner = actionStats.getMoveInterner();
+
+        for (var moveId = 0; moveId < moveInterner.size(); moveId++) {
+            final int visitCount = actionStats.getVisitCount(moveId);
+            if (visitCount > 0) {
+                final var decisions = new Decision[] {Decision.of(moveInterner.getMove(moveId))};
+                final var scoreSums = new double[playerCount + 1];
+                for (var p = 1; p <= playerCount; p++) {
+                    scoreSums[p] = actionStats.getScoreSum(moveId, p);
+                }
+                final var base = gainedOnly ? contents.actionEntries().get(decisions[0]) : null;
+                addSaved(actions, decisions, visitCount, scoreSums, base);
+            }
+        }
+
+        final var entries = nGramStats.getEntries();
+        for (var slot = 0; slot < entries.capacity(); slot++) {
+            final int n = entries.getLength(slot);
+            if (n == 0) {
+                continue;
+            }
+
+            final var decisions = new Decision[n];
+            for (var k = 0; k < n; k++) {
+                decisions[k] = Decision.of(moveInterner.getMove(entries.getMoveId(slot, k)));
+            }
+            final var scoreSums = new double[playerCount + 1];
+            for (var p = 1; p <= playerCount; p++) {
+                scoreSums[p] = entries.getScoreSum(slot, p);
+            }
+            final var base = gainedOnly ? findNGramEntry(decisions) : null;
+            addSaved(nGrams, decisions, entries.getVisitCount(slot), scoreSums, base);
+        }
+    }
+
+    private Entry findNGramEntry(final Decision[] decisions) {
+        final var entries = contents.nGramEntries().get(decisions[0]);
+        if (entries != null) {
+            for (final var entry : entries) {
+                if (Arrays.equals(entry.decisions, decisions)) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Adds the statistics decayed by the factor, keeping the mean scores; statistics decayed to 0 visits are dropped.
+    // The statistics of the base entry are subtracted first if it was merged into the tables.
+    private void addSaved(
+            final List<Saved> saved,
+            final Decision[] decisions,
+            final int visitCount,
+            final double[] scoreSums,
+            final Entry base) {
+        final boolean subtract = base != null && base.merged;
+        final int count = subtract ? visitCount - base.visitCount : visitCount;
+        final int decayedCount = (int) (count * decay);
+        if (decayedCount <= 0) {
+            return;
+        }
+
+        final var decayedSums = new double[playerCount + 1];
+        for (var p = 1; p <= playerCount; p++) {
+            final double sum = subtract ? scoreSums[p] - base.scoreSums[p] : scoreSums[p];
+            decayedSums[p] = sum * decayedCount / count;
+        }
+        saved.add(new Saved(decisions, decayedCount, decayedSums));
+    }
+
+    // The entries of a generation saved by another agent of the game since the file of this one was mapped, null if it
+    // can not be read (the statistics of this game are saved as if it did not exist then)
+    private Contents readNewest(final Path path) {
+        try {
+            return read(ByteBuffer.wrap(Files.readAllBytes(path)), playerCount);
+        } catch (IOException e) {
+            System.err.println("WARNING: ignoring statistics file " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The entries of the newest generation plus the saved statistics of the same decisions
+    private List<Saved> sum(final Collection<Entry> newest, final List<Saved> saved) {
+        final Map<List<Decision>, Saved> sums = new LinkedHashMap<>();
+        for (final var entry : newest) {
+            sums.put(List.of(entry.decisions), new Saved(entry.decisions, entry.visitCount, entry.scoreSums));
+        }
+        for (final var statistics : saved) {
+            sums.merge(List.of(statistics.decisions()), statistics, this::add);
+        }
+        return new ArrayList<>(sums.values());
+    }
+
+    // Visit counts saturate like those of the tables, keeping the mean scores
+    private Saved add(final Saved first, final Saved second) {
+        final long visitCount = (long) first.visitCount() + second.visitCount();
+        final double scale = visitCount > Integer.MAX_VALUE ? (double) Integer.MAX_VALUE / visitCount : 1.0;
+
+        final var scoreSums = new double[playerCount + 1];
+        for (var p = 1; p <= playerCount; p++) {
+            scoreSums[p] = (first.scoreSums()[p] + second.scoreSums()[p]) * scale;
+        }
+        return new Saved(first.decisions(), (int) (visitCount * scale), scoreSums);
+    }
+
+    // Keeps the capacity most visited of the statistics
+    private List<Saved> limit(final List<Saved> saved) {
+        if (capacity == 0 || saved.size() <= capacity) {
+            return saved;
+        }
+
+        final var visitCounts = new int[saved.size()];
+        for (var i = 0; i < visitCounts.length; i++) {
+            visitCounts[i] = saved.get(i).visitCount();
+        }
+
+        final var eviction = new FrequencyEviction();
+        eviction.begin(visitCounts, saved.size() - capacity);
+
+        final List<Saved> kept = new ArrayList<>(capacity);
+        for (final var statistics : saved) {
+            if (!eviction.shouldEvict(statistics.visitCount())) {
+                kept.add(statistics);
+            }
+        }
+        return kept;
+    }
+
+    private void writeStatistics(final DataOutputStream out, final Saved statistics) throws IOException {
+        out.writeInt(statistics.visitCount());
+        for (var p = 1; p <= playerCount; p++) {
+            out.writeDouble(statistics.scoreSums()[p]);
+        }
+    }
+
+    private void write(
+            final Path absoluteDirectory, final int newGeneration, final List<Saved> actions, final List<Saved> nGrams)
+            throws IOException {
+        final var tempFile = Files.createTempFile(absoluteDirectory, FILE_EXTENSION, ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(playerCount);
+                out.writeInt(actions.size());
+                out.writeInt(nGrams.size());
+
+                for (final var action : actions) {
+                    action.decisions()[0].write(out);
+                    writeStatistics(out, action);
+                }
+                for (final var nGram : nGrams) {
+                    out.writeInt(nGram.decisions().length);
+                    for (final var decision : nGram.decisions()) {
+                        decision.write(out);
+                    }
+                    writeStatistics(out, nGram);
+                }
+            }
+            // a new file, the mapped one is not replaced
+            Files.move(
+                    tempFile,
+                    getPath(absoluteDirectory, baseName, newGeneration),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        for (final var file : listFiles(absoluteDirectory, baseName)) {
+            if (parseGeneration(file.getFileName().toString(), baseName) < newGeneration) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // still mapped (e.g. on Windows), deleted by a later save
+                }
+            }
+        }
+    }
+}
@@ -17,8 +17,8 @@ public class ExplanationGenerator {
     private final Node selectedNode;
     private final double prevTurnScore;
 
-    private final Map<MoveKey, ActionStats> globalActionStats;
-    private final Map<NGramMoveKey, ActionStats> globalNGramStats;
+    private final ActionStatsTable globalActionStats;
+    private final NGramStatsTable globalNGramStats;
     private final int maxNGramLength;
 
     private final ISelectionPolicy finalMoveSelectionPolicy;
@@ -33,8 +33,8 @@ public class ExplanationGenerator {
             final Node root,
             final Node selectedNode,
             final double prevTurnScore,
-            final Map<MoveKey, ActionStats> globalActionStats,
-            final Map<NGramMoveKey, ActionStats> globalNGramStats,
+            final ActionStatsTable globalActionStats,
+            final NGramStatsTable globalNGramStats,
             final int maxNGramLength,
             final ISelectionPolicy finalMoveSelectionPolicy,
             final int backpropagationFlags,
@@ -500,10 +500,8 @@ public class ExplanationGenerator {
     }
 
     private String getMastExplanation() {
-        final Function<Node, Double> evalFunction = node -> {
-            final var aStats = globalActionStats.get(new MoveKey(node.getMoveFromParent(), 0));
-            return aStats.scoreSums[player] / aStats.visitCount;
-        };
+        final Function<Node, Double> evalFunction =
+                node -> globalActionStats.getMeanScore(node.getMoveFromParent(), player);
 
         return getPositiveOutliersExplanation(evalFunction, "MAST");
     }
@@ -533,8 +531,7 @@ public class ExplanationGenerator {
                 nGram[i] = reverseTrialIterator.next();
             }
 
-            final var aStats = globalNGramStats.get(new NGramMoveKey(nGram, 0));
-            return aStats.scoreSums[player] / aStats.visitCount;
+            return globalNGramStats.getMeanScore(nGram, player);
         };
     }
 
@@ -626,10 +623,9 @@ public class ExplanationGenerator {
         }
 
         if ((backpropagationFlags & BackpropagationFlags.GLOBAL_ACTION_STATS) != 0) {
-            final var aStats = globalActionStats.get(new MoveKey(move, 0));
             nodeString += String.format(
                     ", global action visits: %d, global action score: %.4f",
-                    aStats.visitCount, aStats.scoreSums[player] / aStats.visitCount);
+                    globalActionStats.getVisitCount(move), globalActionStats.getMeanScore(move, player));
         }
 
         if ((backpropagationFlags & BackpropagationFlags.GLOBAL_NGRAM_ACTION_STATS) != 0) {
@@ -642,13 +638,12 @@ public class ExplanationGenerator {
                 for (var i = 0; i < n; i++) {
                     nGram[i] = reverseActionSequence.get(n - i - 1);
                 }
-                final var nGramKey = new NGramMoveKey(nGram, 0);
+                final int nGramVisits = globalNGramStats.getVisitCount(nGram);
 
-                if (globalNGramStats.containsKey(nGramKey)) {
-                    final var nGramStats = globalNGramStats.get(nGramKey);
+                if (nGramVisits > 0) {
                     nodeString += String.format(
                             ", %d-gram visits: %d, %d-gram score: %f",
-                            n, nGramStats.visitCount, n, nGramStats.scoreSums[player] / nGramStats.visitCount);
+                            n, nGramVisits, n, globalNGramStats.getMeanScore(nGram, player));
                 } else {
                     break;
                 }
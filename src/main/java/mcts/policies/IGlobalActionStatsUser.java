@@ -1,9 +1,7 @@
 package mcts.policies;
 
-import java.util.Map;
-import mcts.ActionStats;
-import search.mcts.MCTS.MoveKey;
+import mcts.ActionStatsTable;
 
 public interface IGlobalActionStatsUser {
-    public void setGlobalActionStats(final Map<MoveKey, ActionStats> globalActionStats);
+    public void setGlobalActionStats(final ActionStatsTable globalActionStats);
 }
@@ -1,11 +1,9 @@
 package mcts.policies;
 
-import java.util.Map;
-import mcts.ActionStats;
-import search.mcts.MCTS.NGramMoveKey;
+import mcts.NGramStatsTable;
 
 public interface IGlobalNGramStatsUser {
-    public void setGlobalNGramStats(final Map<NGramMoveKey, ActionStats> globalNGramStats);
+    public void setGlobalNGramStats(final NGramStatsTable globalNGramStats);
 
     public int getMaxNGramLength();
 }
@@ -9,6 +9,7 @@ public final class BackpropagationFlags {
     public static final int GLOBAL_ACTION_STATS = (0x1 << 2);
     public static final int GLOBAL_NGRAM_ACTION_STATS = (0x1 << 3);
     public static final int PROOF_DISPROOF_NUMBERS = (0x1 << 4);
+    public static final int VIRTUAL_LOSS = (0x1 << 5);
 
     public static String flagsToString(final int flags) {
         List<String> activatedFlags = new ArrayList<>();
@@ -33,6 +34,10 @@ public final class BackpropagationFlags {
             activatedFlags.add("PNS numbers");
         }
 
+        if ((flags & VIRTUAL_LOSS) != 0) {
+            activatedFlags.add("virtual loss");
+        }
+
         return String.join(", ", activatedFlags);
     }
 }
@@ -0,0 +1,104 @@
+package mcts.policies.playout;
+
+import game.Game;
+import java.util.concurrent.ThreadLocalRandom;
+import metadata.ai.heuristics.Heuristics;
+import metadata.ai.heuristics.terms.HeuristicTerm;
+import metadata.ai.heuristics.terms.Material;
+import metadata.ai.heuristics.terms.MobilitySimple;
+import other.RankUtils;
+import other.context.Context;
+import other.trial.Trial;
+
+// Uniform playout truncated after cutoffDepth moves. A state that is not terminal is scored with the heuristics from
+// the game metadata (material and mobility if there are none): the value of every player minus the mean value of its
+// opponents, divided by the number of heuristic terms and the temperature and squashed into [-1, 1] with tanh.
+// Heuristic terms may keep state between evaluations, so every playout thread scores with its own copy.
+public final class CutoffHeuristic implements IPlayoutPolicy {
+    // heuristic terms with smaller absolute weights are skipped
+    private static final float ABS_WEIGHT_THRESHOLD = 0.001f;
+
+    private final int cutoffDepth;
+    private final double temperature;
+
+    private record GameHeuristics(Game game, Heuristics heuristics, double scale) {}
+
+    // initialized for the game of the first playout of each thread and replaced when the game changes
+    private final ThreadLocal<GameHeuristics> gameHeuristics = new ThreadLocal<>();
+
+    public CutoffHeuristic() {
+        this(20, 1.0);
+    }
+
+    public CutoffHeuristic(final int cutoffDepth, final double temperature) {
+        this.cutoffDepth = cutoffDepth;
+        this.temperature = temperature;
+    }
+
+    @Override
+    public String getName() {
+        return String.format("CutoffHeuristic (depth=%d, temperature=%.2f)", cutoffDepth, temperature);
+    }
+
+    @Override
+    public int getBackpropagationFlags() {
+        return 0;
+    }
+
+    @Override
+    public Trial runPlayout(Context context) {
+        return context.game().playout(context, null, -1.0, null, 0, cutoffDepth, ThreadLocalRandom.current());
+    }
+
+    @Override
+    public double[] getUtilities(Context context) {
+        if (context.trial().over()) {
+            return RankUtils.utilities(context);
+        }
+
+        final var current = getHeuristics(context.game());
+        final var valueFunction = current.heuristics();
+        final int playerCount = context.game().players().count();
+
+        final var values = new double[playerCount + 1];
+        double valueSum = 0.0;
+        for (var p = 1; p <= playerCount; p++) {
+            values[p] = valueFunction.computeValue(context, p, ABS_WEIGHT_THRESHOLD);
+            valueSum += values[p];
+        }
+
+        // with more than one opponent their sum would grow with the number of players
+        final int numOpponents = Math.max(1, playerCount - 1);
+        final var utilities = new double[playerCount + 1];
+        for (var p = 1; p <= playerCount; p++) {
+            utilities[p] = Math.tanh(current.scale() * (values[p] - (valueSum - values[p]) / numOpponents));
+        }
+        return utilities;
+    }
+
+    private GameHeuristics getHeuristics(final Game currentGame) {
+        final var current = gameHeuristics.get();
+        if (current != null && current.game() == currentGame) {
+            return current;
+        }
+
+        final var aiMetadata = currentGame.metadata().ai();
+
+        final Heuristics heuristics;
+        if (aiMetadata != null && aiMetadata.heuristics() != null) {
+            heuristics = Heuristics.copy(aiMetadata.heuristics());
+        } else {
+            heuristics = new Heuristics(new HeuristicTerm[] {
+                new Material(null, Float.valueOf(1.f), null, null),
+                new MobilitySimple(null, Float.valueOf(0.001f))
+            });
+        }
+        heuristics.init(currentGame);
+
+        // every term adds its own range to the values, so more terms would saturate tanh sooner
+        final int numTerms = Math.max(1, heuristics.heuristicTerms().length);
+        final var newHeuristics = new GameHeuristics(currentGame, heuristics, 1.0 / (numTerms * temperature));
+        gameHeuristics.set(newHeuristics);
+        return newHeuristics;
+    }
+}
@@ -1,5 +1,6 @@
 package mcts.policies.playout;
 
+import other.RankUtils;
 import other.context.Context;
 import other.trial.Trial;
 
@@ -9,4 +10,9 @@ public interface IPlayoutPolicy {
     public int getBackpropagationFlags();
 
     public Trial runPlayout(Context context);
+
+    // Utilities of the state reached by the playout, in [-1, 1] and indexed by player
+    public default double[] getUtilities(Context context) {
+        return RankUtils.utilities(context);
+    }
 }
@@ -1,20 +1,21 @@
 package mcts.policies.playout;
 
-import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 import main.collections.FastArrayList;
-import mcts.ActionStats;
+import mcts.ActionStatsTable;
 import mcts.policies.IGlobalActionStatsUser;
 import mcts.policies.backpropagation.BackpropagationFlags;
 import other.context.Context;
 import other.move.Move;
 import other.playout.PlayoutMoveSelector;
 import other.trial.Trial;
-import search.mcts.MCTS.MoveKey;
 
 public final class MAST implements IPlayoutPolicy, IGlobalActionStatsUser {
     private final double epsilon;
-    private Map<MoveKey, ActionStats> globalActionStats;
+    private volatile ActionStatsTable globalActionStats;
+
+    // the selectors keep no state, so all playouts share them
+    private final PlayoutMoveSelector moveSelector;
 
     public MAST() {
         this(0.1);
@@ -22,6 +23,7 @@ public final class MAST implements IPlayoutPolicy, IGlobalActionStatsUser {
 
     public MAST(final double epsilon) {
         this.epsilon = epsilon;
+        this.moveSelector = new EpsilonGreedyWrapper(new MASTMoveSelector(), epsilon);
     }
 
     @Override
@@ -30,7 +32,7 @@ public final class MAST implements IPlayoutPolicy, IGlobalActionStatsUser {
     }
 
     @Override
-    public void setGlobalActionStats(final Map<MoveKey, ActionStats> globalActionStats) {
+    public void setGlobalActionStats(final ActionStatsTable globalActionStats) {
         this.globalActionStats = globalActionStats;
     }
 
@@ -41,40 +43,30 @@ public final class MAST implements IPlayoutPolicy, IGlobalActionStatsUser {
 
     @Override
     public Trial runPlayout(Context context) {
-        return context.game()
-                .playout(
-                        context,
-                        null,
-                        -1.0,
-                        new EpsilonGreedyWrapper(new MASTMoveSelector(globalActionStats), epsilon),
-                        0,
-                        -1,
-                        ThreadLocalRandom.current());
+        return context.game().playout(context, null, -1.0, moveSelector, 0, -1, ThreadLocalRandom.current());
     }
 
     private final class MASTMoveSelector extends PlayoutMoveSelector {
-        private final Map<MoveKey, ActionStats> globalActionStats;
-
-        public MASTMoveSelector(final Map<MoveKey, ActionStats> globalActionStats) {
-            this.globalActionStats = globalActionStats;
-        }
-
         @Override
         public Move selectMove(
                 final Context context,
                 final FastArrayList<Move> maybeLegalMoves,
                 final int p,
                 final IsMoveReallyLegal isMoveReallyLegal) {
+            final var stats = globalActionStats;
+            final var moveInterner = stats.getMoveInterner();
 
             // get best legal move
             Move bestMove = null;
             double bestScore = Double.NEGATIVE_INFINITY;
             int numBestFound = 0;
 
-            for (final var move : maybeLegalMoves) {
+            // indexed loop and id lookups that only intern moves with statistics of earlier games (see
+            // WarmStartStore), other moves that were never played have no id and score NO_SCORE
+            for (var i = 0; i < maybeLegalMoves.size(); i++) {
+                final var move = maybeLegalMoves.get(i);
                 if (isMoveReallyLegal.checkMove(move)) {
-                    final var aStats = globalActionStats.get(new MoveKey(move, 0));
-                    final double tempScore = (aStats == null) ? -1.0 : aStats.scoreSums[p] / aStats.visitCount;
+                    final double tempScore = stats.getMeanScore(moveInterner.getKnownId(move), p);
 
                     if (tempScore > bestScore) {
                         bestScore = tempScore;
@@ -91,7 +83,6 @@ public final class MAST implements IPlayoutPolicy, IGlobalActionStatsUser {
             //     System.err.println("MAST: no move found");
             // }
             // System.err.println("MAST: selected move with score: " + bestScore);
-            // System.err.println("MAST: map size: " + globalActionStats.size());
             return bestMove;
         }
     }
@@ -1,24 +1,26 @@
 package mcts.policies.playout;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 import main.collections.FastArrayList;
-import mcts.ActionStats;
+import mcts.ActionStatsTable;
+import mcts.MoveInterner;
+import mcts.NGramStatsTable;
 import mcts.policies.IGlobalNGramStatsUser;
 import mcts.policies.backpropagation.BackpropagationFlags;
 import other.context.Context;
 import other.move.Move;
 import other.playout.PlayoutMoveSelector;
 import other.trial.Trial;
-import search.mcts.MCTS.NGramMoveKey;
 
 public final class NST implements IPlayoutPolicy, IGlobalNGramStatsUser {
     private final int maxNGramLength;
     private final double epsilon;
 
-    private Map<NGramMoveKey, ActionStats> globalNGramStats;
+    private volatile NGramStatsTable globalNGramStats;
+
+    // the selectors keep no state (the move windows are per thread), so all playouts share them
+    private final PlayoutMoveSelector moveSelector;
+    private final ThreadLocal<MoveWindow> moveWindows;
 
     public NST() {
         this(3, 0.1);
@@ -27,6 +29,8 @@ public final class NST implements IPlayoutPolicy, IGlobalNGramStatsUser {
     public NST(final int maxNGramLength, final double epsilon) {
         this.maxNGramLength = maxNGramLength;
         this.epsilon = epsilon;
+        this.moveSelector = new EpsilonGreedyWrapper(new NSTMoveSelector(), epsilon);
+        this.moveWindows = ThreadLocal.withInitial(() -> new MoveWindow(maxNGramLength));
     }
 
     @Override
@@ -35,7 +39,7 @@ public final class NST implements IPlayoutPolicy, IGlobalNGramStatsUser {
     }
 
     @Override
-    public void setGlobalNGramStats(final Map<NGramMoveKey, ActionStats> globalNGramStats) {
+    public void setGlobalNGramStats(final NGramStatsTable globalNGramStats) {
         this.globalNGramStats = globalNGramStats;
     }
 
@@ -51,75 +55,106 @@ public final class NST implements IPlayoutPolicy, IGlobalNGramStatsUser {
 
     @Override
     public Trial runPlayout(Context context) {
-        return context.game()
-                .playout(
-                        context,
-                        null,
-                        -1.0,
-                        new EpsilonGreedyWrapper(new NSTMoveSelector(maxNGramLength, globalNGramStats), epsilon),
-                        0,
-                        -1,
-                        ThreadLocalRandom.current());
+        return context.game().playout(context, null, -1.0, moveSelector, 0, -1, ThreadLocalRandom.current());
     }
 
-    private final class NSTMoveSelector extends PlayoutMoveSelector {
-        private final int maxNGramLength;
-        private final Map<NGramMoveKey, ActionStats> globalNGramStats;
+    // Interned ids of the last maxNGramLength - 1 moves of a trial, newest first from index 1 on; index 0 holds the
+    // scored move. Advanced by one move per playout step, rebuilt when the thread starts another trial. Moves played
+    // earlier in the current playout (e.g. ε-random ones) may not be interned yet and have the id -1, unless they have
+    // statistics of earlier games.
+    private static final class MoveWindow {
+        final int[] ids;
+        int numPrevious = 0;
+
+        // number of the newest previous moves up to the first one without an id, only n-grams within them are known
+        int numKnown = 0;
+
+        private Trial trial = null;
+        private int numMoves = -1;
 
-        public NSTMoveSelector(final int maxNGramLength, final Map<NGramMoveKey, ActionStats> globalNGramStats) {
-            this.maxNGramLength = maxNGramLength;
-            this.globalNGramStats = globalNGramStats;
+        MoveWindow(final int maxNGramLength) {
+            this.ids = new int[maxNGramLength];
         }
 
+        void update(final Trial currentTrial, final MoveInterner moveInterner) {
+            final int currentNumMoves = currentTrial.numMoves();
+            if (currentTrial == trial && currentNumMoves == numMoves) {
+                return;
+            }
+
+            if (currentTrial == trial && currentNumMoves == numMoves + 1) {
+                for (var k = ids.length - 1; k > 1; k--) {
+                    ids[k] = ids[k - 1];
+                }
+                if (ids.length > 1) {
+                    ids[1] = moveInterner.getKnownId(currentTrial.lastMove());
+                }
+                numPrevious = Math.min(numPrevious + 1, ids.length - 1);
+            } else {
+                numPrevious = Math.min(currentNumMoves, ids.length - 1);
+                for (var k = 1; k <= numPrevious; k++) {
+                    ids[k] = moveInterner.getKnownId(currentTrial.getMove(currentNumMoves - k));
+                }
+            }
+
+            numKnown = 0;
+            while (numKnown < numPrevious && ids[numKnown + 1] >= 0) {
+                numKnown++;
+            }
+
+            trial = currentTrial;
+            numMoves = currentNumMoves;
+        }
+    }
+
+    private final class NSTMoveSelector extends PlayoutMoveSelector {
         @Override
         public Move selectMove(
                 final Context context,
                 final FastArrayList<Move> maybeLegalMoves,
                 final int p,
                 final IsMoveReallyLegal isMoveReallyLegal) {
+            final var stats = globalNGramStats;
+            final var entries = stats.getEntries();
+            final var moveInterner = stats.getMoveInterner();
+
+            final var window = moveWindows.get();
+            window.update(context.trial(), moveInterner);
+            final var ids = window.ids;
 
             Move bestMove = null;
             double bestScore = Double.NEGATIVE_INFINITY;
             int numBestFound = 0;
 
-            for (final var move : maybeLegalMoves) {
+            for (var i = 0; i < maybeLegalMoves.size(); i++) {
+                final var move = maybeLegalMoves.get(i);
                 if (!isMoveReallyLegal.checkMove(move)) {
                     continue;
                 }
 
-                final List<Move> reverseActionSequence = new ArrayList<>();
-                reverseActionSequence.add(move);
-                final var reverseTrialIterator = context.trial().reverseMoveIterator();
+                // a move that was never played is only interned if it has statistics of earlier games (see
+                // WarmStartStore), otherwise once a playout plays it
+                ids[0] = moveInterner.getKnownId(move);
 
                 int numNGramsConsidered = 0;
                 double nGramsScoreSum = 0.0;
-
-                for (var n = 1; n <= maxNGramLength; n++) {
-                    final var nGram = new Move[n];
-                    for (var i = 0; i < n; i++) {
-                        nGram[i] = reverseActionSequence.get(n - i - 1);
-                    }
-
-                    final var nGramStats = globalNGramStats.get(new NGramMoveKey(nGram, 0));
-
-                    if (nGramStats == null) {
-                        if (n == 1) {
-                            nGramsScoreSum = -1.0;
-                            numNGramsConsidered = 1;
-                        }
-                        break;
-                    } else {
-                        nGramsScoreSum += nGramStats.scoreSums[p] / nGramStats.visitCount;
-                        numNGramsConsidered++;
-                    }
-
-                    if (!reverseTrialIterator.hasNext()) {
+                long hash = NGramStatsTable.EMPTY_HASH;
+
+                // the n-gram of length n is the move preceded by the n - 1 newest moves of the window, a move that
+                // was never played has no n-grams at all
+                final int maxLength = ids[0] >= 0 ? window.numKnown + 1 : 0;
+                for (var n = 1; n <= maxLength; n++) {
+                    hash = NGramStatsTable.extend(hash, ids[n - 1]);
+                    final int slot = entries.find(ids, n, hash);
+                    if (slot < 0) {
                         break;
                     }
-                    reverseActionSequence.add(reverseTrialIterator.next());
+                    nGramsScoreSum += entries.getMeanScore(slot, p);
+                    numNGramsConsidered++;
                 }
 
-                final double moveScore = nGramsScoreSum / numNGramsConsidered;
+                final double moveScore =
+                        numNGramsConsidered > 0 ? nGramsScoreSum / numNGramsConsidered : ActionStatsTable.NO_SCORE;
 
                 if (moveScore > bestScore) {
                     bestScore = moveScore;
@@ -134,7 +169,6 @@ public final class NST implements IPlayoutPolicy, IGlobalNGramStatsUser {
             //     System.err.println("NST: no move found");
             // }
             // System.err.println("NST: selected move with score: " + bestScore);
-            // System.err.println("NST: map size: " + globalNGramStats.size());
             return bestMove;
         }
     }
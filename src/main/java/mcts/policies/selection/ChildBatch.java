@@ -0,0 +1,78 @@
+package mcts.policies.selection;
+
+import mcts.Node;
+import mcts.NodeArena;
+
+// Statistics of all children of one node gathered into primitive arrays, so that a selection policy can score them
+// in a single pass (see ISelectionPolicy.computeValues). Values that are the same for all children, like the mover
+// and the parent visit count, are read once per batch. Every thread reuses its own batch, the arrays only grow.
+public final class ChildBatch {
+    private static final ThreadLocal<ChildBatch> BATCHES = ThreadLocal.withInitial(ChildBatch::new);
+
+    private Node parent;
+    private NodeArena arena;
+    private int firstChild;
+
+    public int size = 0;
+    public int mover = 0;
+    public int parentVisitCount = 0;
+
+    // indexed by the position of the child in the children block, scores of the mover
+    public int[] statsIds = new int[0];
+    public int[] moveIds = new int[0];
+    public int[] visitCounts = new int[0];
+    public double[] scoreSums = new double[0];
+
+    // output of the selection policy
+    public double[] values = new double[0];
+
+    private ChildBatch() {}
+
+    public static ChildBatch forCurrentThread() {
+        return BATCHES.get();
+    }
+
+    public void gather(final Node parentNode) {
+        this.parent = parentNode;
+        this.arena = parentNode.getArena();
+        // the number of children is published last, so it has to be read first
+        this.size = arena.getNumChildren(parentNode.getId());
+        this.firstChild = arena.getFirstChild(parentNode.getId());
+        this.mover = parentNode.getPlayer();
+        this.parentVisitCount = parentNode.getVisitCount();
+
+        if (values.length < size) {
+            final int capacity = Math.max(size, 2 * values.length);
+            statsIds = new int[capacity];
+            moveIds = new int[capacity];
+            visitCounts = new int[capacity];
+            scoreSums = new double[capacity];
+            values = new double[capacity];
+        }
+
+        for (var i = 0; i < size; i++) {
+            final int statsId = arena.getStatsId(firstChild + i);
+            statsIds[i] = statsId;
+            moveIds[i] = arena.getMoveId(firstChild + i);
+            visitCounts[i] = arena.getVisitCount(statsId);
+            scoreSums[i] = arena.getScoreSum(statsId, mover);
+        }
+    }
+
+    public Node getParent() {
+        return parent;
+    }
+
+    public NodeArena getArena() {
+        return arena;
+    }
+
+    // Arena id of the child, under which its score bounds and proof numbers are stored
+    public int getChildId(final int index) {
+        return firstChild + index;
+    }
+
+    public Node getChild(final int index) {
+        return arena.getNode(firstChild + index);
+    }
+}
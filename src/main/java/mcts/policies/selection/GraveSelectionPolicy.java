@@ -1,5 +1,6 @@
 package mcts.policies.selection;
 
+import mcts.AmafTable;
 import mcts.Node;
 import mcts.policies.backpropagation.BackpropagationFlags;
 
@@ -34,9 +35,29 @@ public final class GraveSelectionPolicy implements ISelectionPolicy {
     @Override
     public double getNodeValue(Node node) {
         final var parentNode = node.getParent();
-        final var currentPlayerID = parentNode.getContext().state().mover();
-        final var moveFromParent = node.getMoveFromParent();
+        final var currentPlayerID = parentNode.getPlayer();
+        final var refNode = getRefNode(parentNode);
 
+        return getValue(
+                node.getScoreSum(currentPlayerID),
+                node.getVisitCount(),
+                refNode.getStatisticsAMAF(),
+                node.getMoveId(),
+                currentPlayerID);
+    }
+
+    @Override
+    public void computeValues(final ChildBatch batch) {
+        // the same reference node is used for all children
+        final var statisticsAMAF = getRefNode(batch.getParent()).getStatisticsAMAF();
+
+        for (var i = 0; i < batch.size; i++) {
+            batch.values[i] =
+                    getValue(batch.scoreSums[i], batch.visitCounts[i], statisticsAMAF, batch.moveIds[i], batch.mover);
+        }
+    }
+
+    private Node getRefNode(final Node parentNode) {
         Node refNode = parentNode;
         while (refNode != null && refNode.getVisitCount() <= ref) {
             refNode = refNode.getParent();
@@ -45,12 +66,26 @@ public final class GraveSelectionPolicy implements ISelectionPolicy {
         if (refNode == null) {
             refNode = parentNode;
         }
+        return refNode;
+    }
 
-        final double w = node.getScoreSum(currentPlayerID);
-        final double p = node.getVisitCount();
+    // statisticsAMAF - AMAF statistics of the reference node, null if it has none yet
+    private double getValue(
+            final double w,
+            final double p,
+            final AmafTable statisticsAMAF,
+            final int moveId,
+            final int currentPlayerID) {
+        // a single probe for both AMAF values
+        final var entries = statisticsAMAF != null ? statisticsAMAF.getEntries() : null;
+        final int slot = entries != null ? entries.find(moveId) : -1;
 
-        final double wa = refNode.getScoreSumAMAF(moveFromParent, currentPlayerID);
-        final double pa = refNode.getVisitCountAMAF(moveFromParent);
+        final double pa = slot >= 0 ? entries.getVisitCount(slot) : 0.0;
+        if (pa == 0.0) {
+            // no AMAF estimate of the move yet (the blended value below would be NaN)
+            return w / p;
+        }
+        final double wa = entries.getScoreSum(slot, currentPlayerID);
 
         // β formula from Tristan Cazenave's GRAVE paper
         final double beta = pa / (pa + p + BIAS * pa * p);
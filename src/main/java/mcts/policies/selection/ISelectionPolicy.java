@@ -8,4 +8,12 @@ public interface ISelectionPolicy {
     public int getBackpropagationFlags();
 
     public double getNodeValue(Node node);
+
+    // Batched selection - stores the values of all children gathered in the batch in batch.values.
+    // Policies without a batched implementation evaluate the children one by one.
+    public default void computeValues(final ChildBatch batch) {
+        for (var i = 0; i < batch.size; i++) {
+            batch.values[i] = getNodeValue(batch.getChild(i));
+        }
+    }
 }
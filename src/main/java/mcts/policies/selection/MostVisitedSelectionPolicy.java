@@ -18,4 +18,11 @@ public final class MostVisitedSelectionPolicy implements ISelectionPolicy {
     public double getNodeValue(Node node) {
         return node.getVisitCount();
     }
+
+    @Override
+    public void computeValues(final ChildBatch batch) {
+        for (var i = 0; i < batch.size; i++) {
+            batch.values[i] = batch.visitCounts[i];
+        }
+    }
 }
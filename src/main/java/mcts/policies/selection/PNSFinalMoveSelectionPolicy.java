@@ -36,4 +36,21 @@ public final class PNSFinalMoveSelectionPolicy implements ISelectionPolicy {
             return wrappedPolicy.getNodeValue(node);
         }
     }
+
+    @Override
+    public void computeValues(final ChildBatch batch) {
+        wrappedPolicy.computeValues(batch);
+
+        if (batch.mover != proofPlayer) {
+            return;
+        }
+
+        final var arena = batch.getArena();
+        for (var i = 0; i < batch.size; i++) {
+            if (arena.getProofNumber(batch.getChildId(i)) == 0) {
+                // select this move if PNS proved win (only for our player)
+                batch.values[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
 }
@@ -4,6 +4,9 @@ import mcts.Node;
 import mcts.policies.backpropagation.BackpropagationFlags;
 
 public final class ScoreBoundedFinalMoveSelectionPolicy implements ISelectionPolicy {
+    private static final double WIN_SCORE = 1.0;
+    private static final double LOSS_SCORE = -WIN_SCORE;
+
     private final ISelectionPolicy wrappedPolicy;
 
     public ScoreBoundedFinalMoveSelectionPolicy(final ISelectionPolicy wrappedPolicy) {
@@ -35,4 +38,20 @@ public final class ScoreBoundedFinalMoveSelectionPolicy implements ISelectionPol
             return wrappedPolicy.getNodeValue(node);
         }
     }
+
+    @Override
+    public void computeValues(final ChildBatch batch) {
+        wrappedPolicy.computeValues(batch);
+
+        final var arena = batch.getArena();
+        for (var i = 0; i < batch.size; i++) {
+            if (arena.getOptimisticScore(batch.getChildId(i), batch.mover) == LOSS_SCORE) {
+                // don't select losing move
+                batch.values[i] = Double.NEGATIVE_INFINITY;
+            } else if (arena.getPessimisticScore(batch.getChildId(i), batch.mover) == WIN_SCORE) {
+                // always select winning move
+                batch.values[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
 }
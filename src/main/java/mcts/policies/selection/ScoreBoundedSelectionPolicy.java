@@ -31,4 +31,18 @@ public final class ScoreBoundedSelectionPolicy implements ISelectionPolicy {
             return wrappedPolicy.getNodeValue(node);
         }
     }
+
+    @Override
+    public void computeValues(final ChildBatch batch) {
+        wrappedPolicy.computeValues(batch);
+
+        final var arena = batch.getArena();
+        final double parentPessimistic = batch.getParent().getPessimisticScore(batch.mover);
+
+        for (var i = 0; i < batch.size; i++) {
+            if (arena.getOptimisticScore(batch.getChildId(i), batch.mover) <= parentPessimistic) {
+                batch.values[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+    }
 }
@@ -16,7 +16,7 @@ public final class UCB1SelectionPolicy implements ISelectionPolicy {
     @Override
     public double getNodeValue(Node node) {
         final var parentNode = node.getParent();
-        final var currentPlayerID = parentNode.getContext().state().mover();
+        final var currentPlayerID = parentNode.getPlayer();
 
         final double twoParentLog = 2.0 * Math.log(Math.max(1, parentNode.getVisitCount()));
         final double exploit = node.getScoreSum(currentPlayerID) / node.getVisitCount();
@@ -25,4 +25,14 @@ public final class UCB1SelectionPolicy implements ISelectionPolicy {
 
         return ucb1Value;
     }
+
+    @Override
+    public void computeValues(final ChildBatch batch) {
+        final double twoParentLog = 2.0 * Math.log(Math.max(1, batch.parentVisitCount));
+
+        for (var i = 0; i < batch.size; i++) {
+            final double visitCount = batch.visitCounts[i];
+            batch.values[i] = batch.scoreSums[i] / visitCount + Math.sqrt(twoParentLog / visitCount);
+        }
+    }
 }
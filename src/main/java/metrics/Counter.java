@@ -0,0 +1,25 @@
+package metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+
+// Monotonically increasing value
+public final class Counter implements IMetric {
+    private final DoubleAdder value = new DoubleAdder();
+
+    public void increment() {
+        value.add(1.0);
+    }
+
+    public void add(final double amount) {
+        value.add(amount);
+    }
+
+    public double get() {
+        return value.sum();
+    }
+
+    @Override
+    public void writeSamples(final String name, final String labels, final StringBuilder out) {
+        PrometheusFormat.writeSample(out, name, labels, get());
+    }
+}
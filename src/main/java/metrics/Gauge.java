@@ -0,0 +1,19 @@
+package metrics;
+
+// Value that can go up and down, e.g. a rate measured over the last move
+public final class Gauge implements IMetric {
+    private volatile double value = 0.0;
+
+    public void set(final double value) {
+        this.value = value;
+    }
+
+    public double get() {
+        return value;
+    }
+
+    @Override
+    public void writeSamples(final String name, final String labels, final StringBuilder out) {
+        PrometheusFormat.writeSample(out, name, labels, value);
+    }
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Distribution of observed values over fixed buckets (upper bounds, ascending)
+public final class Histogram implements IMetric {
+    private final double[] upperBounds;
+    private final LongAdder[] bucketCounts;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    public Histogram(final double[] upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        this.bucketCounts = new LongAdder[upperBounds.length];
+        for (var i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = new LongAdder();
+        }
+    }
+
+    public void observe(final double value) {
+        // counts are cumulated only when written, so an observation updates a single bucket
+        for (var i = 0; i < upperBounds.length; i++) {
+            if (value <= upperBounds[i]) {
+                bucketCounts[i].increment();
+                break;
+            }
+        }
+        count.increment();
+        sum.add(value);
+    }
+
+    @Override
+    public void writeSamples(final String name, final String labels, final StringBuilder out) {
+        long cumulativeCount = 0;
+        for (var i = 0; i < upperBounds.length; i++) {
+            cumulativeCount += bucketCounts[i].sum();
+            PrometheusFormat.writeSample(
+                    out,
+                    name + "_bucket",
+                    PrometheusFormat.addLabel(labels, "le", PrometheusFormat.formatValue(upperBounds[i])),
+                    cumulativeCount);
+        }
+        final long totalCount = count.sum();
+        PrometheusFormat.writeSample(
+                out, name + "_bucket", PrometheusFormat.addLabel(labels, "le", "+Inf"), totalCount);
+        PrometheusFormat.writeSample(out, name + "_sum", labels, sum.sum());
+        PrometheusFormat.writeSample(out, name + "_count", labels, totalCount);
+    }
+}
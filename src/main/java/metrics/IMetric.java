@@ -0,0 +1,6 @@
+package metrics;
+
+public interface IMetric {
+    // Appends the samples of this metric in the Prometheus text format, labels is the formatted label set or ""
+    public void writeSamples(String name, String labels, StringBuilder out);
+}
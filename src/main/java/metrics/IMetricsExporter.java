@@ -0,0 +1,9 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Publishes the metrics of a registry, started once and running in the background until closed
+public interface IMetricsExporter extends Closeable {
+    public void start(MetricsRegistry registry) throws IOException;
+}
@@ -0,0 +1,112 @@
+package metrics;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+// Named metrics of all agents in the JVM, each with its own label set (e.g. agent="UCT",player="1"). Recording only
+// updates in-memory adders, the values are formatted when an exporter reads them. Exporters run until closeExporters
+// is called, at the latest from a shutdown hook.
+public final class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    public record Family(String name, String help, String type, Map<String, IMetric> metrics) {}
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    // guarded by this
+    private final Map<String, IMetricsExporter> exporters = new HashMap<>();
+    private boolean shutdownHookAdded = false;
+
+    // set once an exporter is running, nothing reads the metrics before
+    private volatile boolean enabled = false;
+
+    // Registry shared by all agents, which are created anew for every game of a tournament
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    // labels - label set in the text format, see labels(String...)
+    public Counter counter(final String name, final String help, final String labels) {
+        return (Counter) getOrCreate(name, help, "counter", labels, Counter::new);
+    }
+
+    public Gauge gauge(final String name, final String help, final String labels) {
+        return (Gauge) getOrCreate(name, help, "gauge", labels, Gauge::new);
+    }
+
+    public Histogram histogram(final String name, final String help, final String labels, final double[] upperBounds) {
+        return (Histogram) getOrCreate(name, help, "histogram", labels, () -> new Histogram(upperBounds));
+    }
+
+    // Label set from alternating names and values
+    public static String labels(final String... namesAndValues) {
+        String labels = "";
+        for (var i = 0; i + 1 < namesAndValues.length; i += 2) {
+            labels = PrometheusFormat.addLabel(labels, namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return labels;
+    }
+
+    private IMetric getOrCreate(
+            final String name,
+            final String help,
+            final String type,
+            final String labels,
+            final Supplier<IMetric> metricFactory) {
+        final var family = families.computeIfAbsent(
+                name, k -> new Family(name, help, type, new ConcurrentSkipListMap<>()));
+
+        if (!family.type().equals(type)) {
+            throw new IllegalArgumentException(
+                    String.format("Metric %s is a %s, not a %s", name, family.type(), type));
+        }
+        return family.metrics().computeIfAbsent(labels, k -> metricFactory.get());
+    }
+
+    public Collection<Family> getFamilies() {
+        return families.values();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Exporters */
+
+    // Starts the exporter unless one with the same key (e.g. its file or port) is already running
+    public synchronized void addExporter(final String key, final Supplier<IMetricsExporter> exporterFactory) {
+        if (exporters.containsKey(key)) {
+            return;
+        }
+
+        final var exporter = exporterFactory.get();
+        try {
+            exporter.start(this);
+            exporters.put(key, exporter);
+            enabled = true;
+
+            if (!shutdownHookAdded) {
+                Runtime.getRuntime().addShutdownHook(new Thread(this::closeExporters, "metrics exporter shutdown"));
+                shutdownHookAdded = true;
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("WARNING: failed to start metrics exporter %s: %s", key, e.getMessage()));
+        }
+    }
+
+    public synchronized void closeExporters() {
+        for (final var exporter : exporters.values()) {
+            try {
+                exporter.close();
+            } catch (IOException e) {
+                System.err.println("WARNING: failed to close metrics exporter: " + e.getMessage());
+            }
+        }
+        exporters.clear();
+        enabled = false;
+    }
+}
@@ -0,0 +1,74 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Rewrites a file with the metrics in the Prometheus text format every intervalSeconds, e.g. for the textfile
+// collector of the node exporter. The file is replaced atomically, so readers never see a partial write.
+public final class PrometheusFileExporter implements IMetricsExporter {
+    private final Path path;
+    private final long intervalSeconds;
+    private MetricsRegistry registry;
+    private ScheduledExecutorService writer;
+
+    public PrometheusFileExporter(final Path path, final long intervalSeconds) {
+        this.path = path;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @Override
+    public void start(final MetricsRegistry registry) throws IOException {
+        // fail early if the file can not be written
+        write(registry);
+        this.registry = registry;
+
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "metrics file exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleAtFixedRate(
+                () -> {
+                    try {
+                        write(registry);
+                    } catch (IOException e) {
+                        System.err.println("WARNING: failed to write metrics: " + e.getMessage());
+                    }
+                },
+                intervalSeconds,
+                intervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    private void write(final MetricsRegistry registry) throws IOException {
+        final var absolutePath = path.toAbsolutePath();
+        final var directory = absolutePath.getParent();
+        if (directory == null) {
+            throw new IOException("Not a file path: " + absolutePath);
+        }
+
+        final var tempFile = Files.createTempFile(directory, ".metrics", ".tmp");
+        try {
+            Files.writeString(tempFile, PrometheusFormat.write(registry), StandardCharsets.UTF_8);
+            Files.move(tempFile, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Stops the periodic writes and writes the final values
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.shutdown();
+            writer = null;
+            write(registry);
+        }
+    }
+}
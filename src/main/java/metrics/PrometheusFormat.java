@@ -0,0 +1,52 @@
+package metrics;
+
+import java.util.Map;
+
+// Prometheus text exposition format (version 0.0.4)
+public final class PrometheusFormat {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private PrometheusFormat() {}
+
+    public static String write(final MetricsRegistry registry) {
+        final var out = new StringBuilder();
+
+        for (final var family : registry.getFamilies()) {
+            out.append("# HELP ").append(family.name()).append(' ');
+            out.append(family.help().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.type()).append('\n');
+
+            for (final Map.Entry<String, IMetric> metric : family.metrics().entrySet()) {
+                metric.getValue().writeSamples(family.name(), metric.getKey(), out);
+            }
+        }
+        return out.toString();
+    }
+
+    static void writeSample(final StringBuilder out, final String name, final String labels, final double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    static String addLabel(final String labels, final String name, final String value) {
+        final var escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        final var label = String.format("%s=\"%s\"", name, escaped);
+        return labels.isEmpty() ? label : labels + "," + label;
+    }
+
+    static String formatValue(final double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+// Serves the metrics in the Prometheus text format at http://localhost:<port>/metrics
+public final class PrometheusHttpExporter implements IMetricsExporter {
+    private final int port;
+    private HttpServer server;
+
+    public PrometheusHttpExporter(final int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void start(final MetricsRegistry registry) throws IOException {
+        // only reachable from this machine
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            final byte[] body = PrometheusFormat.write(registry).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusFormat.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (final var responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        // the default executor handles requests on the dispatcher thread, a scrape is cheap
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
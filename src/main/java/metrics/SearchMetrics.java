@@ -0,0 +1,95 @@
+package metrics;
+
+// Metrics published by a search agent, all labelled with the agent name and the player it plays in the current game,
+// so that the agents of a self-play game are told apart
+public final class SearchMetrics {
+    private static final double[] PLAYOUT_LENGTH_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+    private static final double[] EXPLANATION_SECONDS_BUCKETS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5};
+
+    private final Counter moves;
+    private final Counter iterations;
+    private final Counter newNodes;
+    private final Counter searchSeconds;
+    private final Gauge iterationsPerSecond;
+    private final Gauge nodesPerSecond;
+    private final Histogram playoutLength;
+    private final Counter reuseAttempts;
+    private final Counter reusedTrees;
+    private final Gauge reuseRatio;
+    private final Counter solvedMoves;
+    private final Histogram explanationSeconds;
+
+    private final MetricsRegistry registry;
+
+    public SearchMetrics(final MetricsRegistry registry, final String agentName, final int player) {
+        this.registry = registry;
+        final String labels = MetricsRegistry.labels("agent", agentName, "player", Integer.toString(player));
+
+        this.moves = registry.counter("ludii_search_moves_total", "Moves searched", labels);
+        this.iterations = registry.counter("ludii_search_iterations_total", "Search iterations", labels);
+        this.newNodes = registry.counter("ludii_search_new_nodes_total", "Nodes added to the search tree", labels);
+        this.searchSeconds = registry.counter("ludii_search_seconds_total", "Time spent searching", labels);
+        this.iterationsPerSecond = registry.gauge(
+                "ludii_search_iterations_per_second", "Search iterations per second during the last move", labels);
+        this.nodesPerSecond = registry.gauge(
+                "ludii_search_nodes_per_second", "Nodes added per second during the last move", labels);
+        this.playoutLength = registry.histogram(
+                "ludii_playout_length", "Number of moves in a playout", labels, PLAYOUT_LENGTH_BUCKETS);
+        this.reuseAttempts = registry.counter(
+                "ludii_tree_reuse_attempts_total", "Searches that started with the tree of a previous move", labels);
+        this.reusedTrees = registry.counter(
+                "ludii_tree_reuse_hits_total", "Searches that reused a subtree of the previous tree", labels);
+        this.reuseRatio = registry.gauge(
+                "ludii_tree_reuse_ratio", "Share of the nodes of the last move kept from the previous tree", labels);
+        this.solvedMoves = registry.counter(
+                "ludii_solver_hits_total", "Moves whose search solved the root position", labels);
+        this.explanationSeconds = registry.histogram(
+                "ludii_explanation_seconds",
+                "Time spent generating the explanation of a move",
+                labels,
+                EXPLANATION_SECONDS_BUCKETS);
+    }
+
+    // Recording per playout is skipped by the search while no exporter reads the metrics
+    public boolean isEnabled() {
+        return registry.isEnabled();
+    }
+
+    public void recordPlayout(final int length) {
+        playoutLength.observe(length);
+    }
+
+    public void recordExplanation(final long nanos) {
+        explanationSeconds.observe(nanos / 1e9);
+    }
+
+    // reuseAttempts and reusedTrees are the counts of this move, keptNodes out of numNodes came from the previous tree
+    public void recordMove(
+            final long nanos,
+            final int numIterations,
+            final int numNewNodes,
+            final int numReuseAttempts,
+            final int numReusedTrees,
+            final int keptNodes,
+            final int numNodes,
+            final boolean solved) {
+        final double seconds = nanos / 1e9;
+
+        moves.increment();
+        iterations.add(numIterations);
+        newNodes.add(numNewNodes);
+        searchSeconds.add(seconds);
+        if (seconds > 0.0) {
+            iterationsPerSecond.set(numIterations / seconds);
+            nodesPerSecond.set(numNewNodes / seconds);
+        }
+
+        reuseAttempts.add(numReuseAttempts);
+        reusedTrees.add(numReusedTrees);
+        reuseRatio.set(numNodes > 0 ? (double) keptNodes / numNodes : 0.0);
+
+        if (solved) {
+            solvedMoves.increment();
+        }
+    }
+}
@@ -3,13 +3,18 @@
 // with modifications
 package pns;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.stream.IntStream;
+import java.util.HashMap;
+import java.util.Map;
 import main.collections.FastArrayList;
 import other.context.Context;
 import other.move.Move;
 
 public class PNSNode {
+    // children of nodes with at least this many legal moves are looked up through a hashed index
+    private static final int CHILD_INDEX_THRESHOLD = 16;
+
     public enum TYPE {
         OR,
         AND
@@ -30,6 +35,9 @@ public class PNSNode {
     private int proofNumber = -1, disproofNumber = -1;
     private VALUE value = VALUE.UNKNOWN;
 
+    // legal move -> index, built on the first lookup
+    private Map<Move, Integer> moveIndex;
+
     public PNSNode(final PNSNode parent, final Context context, final int proofPlayer) {
         this.parent = parent;
         this.context = context;
@@ -105,13 +113,47 @@ public class PNSNode {
     }
 
     public PNSNode getChildByMove(final Move move) {
-        int index = IntStream.range(0, legalMoves.length)
-                .filter(i -> legalMoves[i].equals(move))
-                .findFirst()
-                .orElse(-1);
+        final int index = getMoveIndex(move);
         return index != -1 ? children[index] : null;
     }
 
+    private int getMoveIndex(final Move move) {
+        if (legalMoves.length >= CHILD_INDEX_THRESHOLD) {
+            if (moveIndex == null) {
+                moveIndex = new HashMap<>(2 * legalMoves.length);
+                for (var i = 0; i < legalMoves.length; i++) {
+                    moveIndex.putIfAbsent(legalMoves[i], i);
+                }
+            }
+            return moveIndex.getOrDefault(move, -1);
+        }
+
+        for (var i = 0; i < legalMoves.length; i++) {
+            if (legalMoves[i].equals(move)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Number of nodes in the subtree of this node, including itself
+    public int subtreeSize() {
+        final var stack = new ArrayDeque<PNSNode>();
+        stack.push(this);
+        int size = 0;
+
+        while (!stack.isEmpty()) {
+            final var node = stack.pop();
+            size++;
+            for (final var child : node.children) {
+                if (child != null) {
+                    stack.push(child);
+                }
+            }
+        }
+        return size;
+    }
+
     public void detachFromParent() {
         parent = null;
     }
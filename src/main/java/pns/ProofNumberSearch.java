@@ -8,6 +8,8 @@ import game.Game;
 import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
+import metrics.MetricsRegistry;
+import metrics.SearchMetrics;
 import other.AI;
 import other.context.Context;
 import other.move.Move;
@@ -23,6 +25,18 @@ public class ProofNumberSearch extends AI {
     private int selectedIndex = -1;
     private int lastActionHistorySize = 0;
 
+    // Tree reuse - number of turns with a previous tree, how many of them reused it and the nodes kept this turn
+    private int numReuseAttempts = 0;
+    private int numReusedTrees = 0;
+    private int numKeptNodes = 0;
+
+    // number of nodes expanded by the current search and of the children they added
+    private int numExpandedNodes = 0;
+    private int numNewNodes = 0;
+
+    // labelled with the proof player, created by initAI
+    private SearchMetrics metrics;
+
     private String analysisReport;
 
     public ProofNumberSearch() {
@@ -36,6 +50,9 @@ public class ProofNumberSearch extends AI {
             final double maxSeconds,
             final int maxIterations,
             final int maxDepth) {
+        final var searchEvent = new ProofNumberSearchEvent();
+        searchEvent.begin();
+        final long searchStart = System.nanoTime();
 
         bestPossibleRank = context.computeNextWinRank();
         worstPossibleRank = context.computeNextLossRank();
@@ -46,6 +63,8 @@ public class ProofNumberSearch extends AI {
         }
 
         // final PNSNode root = new PNSNode(null, copyContext(context), proofPlayer);
+        final int previousReuseAttempts = numReuseAttempts;
+        final int previouslyReusedTrees = numReusedTrees;
         initRoot(context);
         eval(root);
         setNumbers(root);
@@ -57,6 +76,8 @@ public class ProofNumberSearch extends AI {
                 (maxSeconds > 0.0) ? System.currentTimeMillis() + (long) (maxSeconds * 1000L) : Long.MAX_VALUE;
         final int maxIts = (maxIterations >= 0) ? maxIterations : Integer.MAX_VALUE;
         int numIterations = 0;
+        numExpandedNodes = 0;
+        numNewNodes = 0;
         // ------------------------------------------------------------------------------------------------------------
 
         while (numIterations < maxIts
@@ -68,9 +89,15 @@ public class ProofNumberSearch extends AI {
             final PNSNode mostProvingNode = selectMostProvingNode(current);
             expandNode(mostProvingNode);
             current = updateAncestors(mostProvingNode);
+            numIterations++;
         }
 
-        analysisReport = String.format("[%s] ", this.friendlyName);
+        analysisReport = String.format(
+                "[%s] Tree reuse: kept %d nodes (reused %d of %d trees). ",
+                this.friendlyName,
+                numKeptNodes,
+                numReusedTrees,
+                numReuseAttempts);
         if (root.proofNumber() == 0) analysisReport += "Proved a win!\n";
         else if (root.disproofNumber() == 0) analysisReport += "Disproved a win!\n";
         else
@@ -83,7 +110,29 @@ public class ProofNumberSearch extends AI {
                 .findFirst()
                 .orElse(ThreadLocalRandom.current().nextInt(root.legalMoves.length));
 
-        return root.legalMoves[selectedIndex];
+        final Move selectedMove = root.legalMoves[selectedIndex];
+
+        metrics.recordMove(
+                System.nanoTime() - searchStart,
+                numIterations,
+                numNewNodes,
+                numReuseAttempts - previousReuseAttempts,
+                numReusedTrees - previouslyReusedTrees,
+                numKeptNodes,
+                numKeptNodes + numNewNodes,
+                root.proofNumber() == 0 || root.disproofNumber() == 0);
+
+        if (searchEvent.shouldCommit()) {
+            searchEvent.iterations = numIterations;
+            searchEvent.expandedNodes = numExpandedNodes;
+            searchEvent.keptNodes = numKeptNodes;
+            searchEvent.proofNumber = root.proofNumber();
+            searchEvent.disproofNumber = root.disproofNumber();
+            searchEvent.selectedMove = String.valueOf(selectedMove);
+            searchEvent.commit();
+        }
+
+        return selectedMove;
     }
 
     private void eval(final PNSNode node) {
@@ -170,6 +219,8 @@ public class ProofNumberSearch extends AI {
     }
 
     private void expandNode(final PNSNode node) {
+        numExpandedNodes++;
+        numNewNodes += node.children().length;
         final PNSNode[] children = node.children();
         final Move[] legalMoves = node.legalMoves;
 
@@ -215,8 +266,12 @@ public class ProofNumberSearch extends AI {
     }
 
     private void initRoot(final Context context) {
+        numKeptNodes = 0;
+
         // Tree reuse
         if (root != null) {
+            numReuseAttempts++;
+
             // get action history for current state
             final var actionHistory = context.trial().generateCompleteMovesList();
 
@@ -246,6 +301,8 @@ public class ProofNumberSearch extends AI {
         } else {
             // System.err.println("reused old tree");
             root.detachFromParent();
+            numReusedTrees++;
+            numKeptNodes = root.subtreeSize();
         }
 
         lastActionHistorySize = context.trial().numMoves();
@@ -255,8 +312,12 @@ public class ProofNumberSearch extends AI {
     @Override
     public void initAI(final Game game, final int playerID) {
         proofPlayer = playerID;
+        metrics = new SearchMetrics(MetricsRegistry.getDefault(), friendlyName, playerID);
         root = null;
         lastActionHistorySize = 0;
+        numReuseAttempts = 0;
+        numReusedTrees = 0;
+        numKeptNodes = 0;
     }
 
     @Override
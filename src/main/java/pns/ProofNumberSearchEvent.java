@@ -0,0 +1,34 @@
+package pns;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder event of one ProofNumberSearch.selectAction call, its duration is the thinking time
+@Name("ludii.pns.Search")
+@Label("Proof-Number Search")
+@Category({"Ludii", "PNS"})
+@Description("Search of one move by ProofNumberSearch")
+@StackTrace(false)
+public final class ProofNumberSearchEvent extends jdk.jfr.Event {
+    @Label("Iterations")
+    public int iterations;
+
+    @Label("Expanded Nodes")
+    public int expandedNodes;
+
+    @Label("Kept Nodes")
+    @Description("Nodes reused from the tree of the previous move")
+    public int keptNodes;
+
+    @Label("Root Proof Number")
+    public int proofNumber;
+
+    @Label("Root Disproof Number")
+    public int disproofNumber;
+
+    @Label("Selected Move")
+    public String selectedMove;
+}
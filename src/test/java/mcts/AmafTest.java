@@ -0,0 +1,90 @@
+package mcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import mcts.policies.backpropagation.BackpropagationFlags;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.GraveSelectionPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import org.junit.Test;
+
+// The single backward pass of the AMAF statistics against adding every move played below each ancestor of the leaf
+// to the statistics of that ancestor, one occurrence at a time
+public class AmafTest {
+    @Test
+    public void singlePassMatchesPerAncestorUpdate() {
+        final Node root = TestTrees.createRoot("Hex.lud");
+        final int playerCount = root.getArena().getPlayerCount();
+        final ISelectionPolicy selectionPolicy = new GraveSelectionPolicy();
+        final var playoutPolicy = new UniformPlayoutPolicy();
+        final int flags = selectionPolicy.getBackpropagationFlags();
+
+        Node deepest = root;
+        for (var i = 0; i < 2_000; i++) {
+            final Node newNode = TestTrees.runIteration(root, selectionPolicy, playoutPolicy, flags, 1);
+            if (newNode.getDepth() > deepest.getDepth() && !newNode.isTerminal()) {
+                deepest = newNode;
+            }
+        }
+
+        final Node leaf = deepest;
+        final List<Node> path = new ArrayList<>();
+        for (Node node = leaf; node != null; node = node.getParent()) {
+            path.add(node);
+        }
+
+        // statistics before the update, copied into fresh tables
+        final Map<Node, AmafTable> before = new HashMap<>();
+        for (final var node : path) {
+            final var copy = new AmafTable(playerCount);
+            if (node.getStatisticsAMAF() != null) {
+                copy.addAll(node.getStatisticsAMAF());
+            }
+            before.put(node, copy);
+        }
+
+        final var simRes = leaf.simulate(playoutPolicy);
+        leaf.propagate(simRes, BackpropagationFlags.AMAF_STATS, 1);
+
+        final var moveInterner = leaf.getArena().getMoveInterner();
+        final var moves = simRes.context().trial().generateCompleteMovesList();
+        final var utilities = simRes.utilities();
+
+        for (final var node : path) {
+            // occurrences of every move played from this node
+            final Map<Integer, Integer> expectedVisits = new HashMap<>();
+            for (var index = node.getDepth(); index < moves.size(); index++) {
+                expectedVisits.merge(moveInterner.getId(moves.get(index)), 1, Integer::sum);
+            }
+
+            final var entries = node.getStatisticsAMAF().getEntries();
+            final var beforeEntries = before.get(node).getEntries();
+            assertTrue("AMAF statistics missing", node.getNumStatisticsAMAF() >= expectedVisits.size());
+
+            for (final var expected : expectedVisits.entrySet()) {
+                final int slot = entries.find(expected.getKey());
+                final int beforeSlot = beforeEntries.find(expected.getKey());
+                assertTrue("AMAF statistics missing", slot >= 0);
+
+                final int visits =
+                        entries.getVisitCount(slot) - (beforeSlot >= 0 ? beforeEntries.getVisitCount(beforeSlot) : 0);
+                assertEquals("AMAF visits at depth " + node.getDepth(), (int) expected.getValue(), visits);
+
+                for (var p = 1; p <= playerCount; p++) {
+                    final double score = entries.getScoreSum(slot, p)
+                            - (beforeSlot >= 0 ? beforeEntries.getScoreSum(beforeSlot, p) : 0.0);
+                    assertEquals(
+                            "AMAF scores at depth " + node.getDepth(),
+                            expected.getValue() * utilities[p],
+                            score,
+                            1e-9);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package mcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.junit.Test;
+
+// Collapsing subtrees over and over, as the node budget does, reuses their slots instead of growing the arena
+public class ArenaPruningTest {
+    @Test
+    public void repeatedPruningKeepsTheCapacityBounded() {
+        final Node root = TestTrees.createRoot("Tic-Tac-Toe.lud");
+        final var arena = root.getArena();
+
+        int peakSlots = 0;
+        for (var round = 0; round < 20; round++) {
+            TestTrees.grow(root, new UCB1SelectionPolicy(), 0, 20_000);
+            peakSlots = Math.max(peakSlots, arena.getNumAllocatedSlots());
+
+            // the less visited half of the children of the root
+            final List<Node> children = new ArrayList<>(root.getChildren());
+            children.sort(Comparator.comparingInt(Node::getVisitCount));
+            for (final var child : children.subList(0, children.size() / 2)) {
+                child.collapse(1);
+            }
+
+            // pages are added by doubling, fragmentation must not add more than that
+            assertTrue(arena.getCapacity() <= 4 * peakSlots);
+        }
+
+        // only the root and its children are left
+        for (final var child : root.getChildren()) {
+            child.collapse(1);
+        }
+        assertEquals(1 + arena.getMaxChildren(root.getId()), arena.getNumAllocatedSlots());
+    }
+}
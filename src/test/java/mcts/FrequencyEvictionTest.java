@@ -0,0 +1,65 @@
+package mcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+// The evicted entries are exactly the ones with the lowest visit counts, however large the counts are
+public class FrequencyEvictionTest {
+    @Test
+    public void evictsLowestCounts() {
+        final var random = new Random(1);
+        final var visitCounts = new int[1_000];
+        for (var i = 0; i < visitCounts.length; i++) {
+            visitCounts[i] = 64 + random.nextInt(100_000);
+        }
+        assertEvictsLowest(visitCounts, visitCounts.length / 4);
+    }
+
+    @Test
+    public void evictsLowestCountsWithTies() {
+        final var random = new Random(2);
+        final var visitCounts = new int[1_000];
+        for (var i = 0; i < visitCounts.length; i++) {
+            // a few distinct counts, so the threshold is shared by many entries
+            visitCounts[i] = 64 * (1 + random.nextInt(8));
+        }
+        assertEvictsLowest(visitCounts, visitCounts.length / 4);
+    }
+
+    @Test
+    public void neverEvictsEmptyEntries() {
+        final var visitCounts = new int[] {0, 70, 0, 65, 90, 0, 64, 100};
+        final var eviction = new FrequencyEviction();
+        eviction.begin(visitCounts, 2);
+
+        final var evicted = new boolean[visitCounts.length];
+        for (var i = 0; i < visitCounts.length; i++) {
+            evicted[i] = eviction.shouldEvict(visitCounts[i]);
+        }
+        assertEquals("[false, false, false, true, false, false, true, false]", Arrays.toString(evicted));
+    }
+
+    private static void assertEvictsLowest(final int[] visitCounts, final int numToEvict) {
+        final var eviction = new FrequencyEviction();
+        eviction.begin(visitCounts, numToEvict);
+
+        final var sorted = visitCounts.clone();
+        Arrays.sort(sorted);
+        final int threshold = sorted[numToEvict - 1];
+
+        int numEvicted = 0;
+        for (final int visitCount : visitCounts) {
+            if (eviction.shouldEvict(visitCount)) {
+                numEvicted++;
+                assertFalse("evicted " + visitCount + " above " + threshold, visitCount > threshold);
+            } else {
+                assertFalse("kept " + visitCount + " below " + threshold, visitCount < threshold);
+            }
+        }
+        assertEquals(numToEvict, numEvicted);
+    }
+}
@@ -0,0 +1,105 @@
+package mcts;
+
+import static org.junit.Assert.assertEquals;
+
+import mcts.policies.backpropagation.BackpropagationFlags;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.junit.Test;
+import other.RankUtils;
+
+// The incremental proof and disproof number propagation against a full recomputation of every node from all its
+// children, checked after every iteration of a search of Tic-Tac-Toe
+public class ProofNumbersTest {
+    private static final int PROOF_PLAYER = 1;
+
+    private final ISelectionPolicy selectionPolicy = new UCB1SelectionPolicy();
+    private final UniformPlayoutPolicy playoutPolicy = new UniformPlayoutPolicy();
+
+    @Test
+    public void numbersMatchFullRecomputation() {
+        final Node root = TestTrees.createRoot("Tic-Tac-Toe.lud");
+        for (var i = 0; i < 1_000; i++) {
+            runIteration(root);
+            assertTreeMatchesFullRecomputation(root);
+        }
+    }
+
+    @Test
+    public void numbersMatchFullRecomputationAfterCollapse() {
+        final Node root = TestTrees.createRoot("Tic-Tac-Toe.lud");
+        for (var i = 0; i < 1_000; i++) {
+            runIteration(root);
+
+            // collapses the most visited unproven subtree below the root from time to time
+            if (i % 100 == 99) {
+                Node collapsed = null;
+                for (final var child : root.getChildren()) {
+                    if (!child.getChildren().isEmpty()
+                            && child.getProofNumber() != 0
+                            && child.getDisproofNumber() != 0
+                            && (collapsed == null || child.getVisitCount() > collapsed.getVisitCount())) {
+                        collapsed = child;
+                    }
+                }
+                if (collapsed != null) {
+                    collapsed.collapse(PROOF_PLAYER);
+                }
+            }
+            assertTreeMatchesFullRecomputation(root);
+        }
+    }
+
+    private void runIteration(final Node root) {
+        TestTrees.runIteration(
+                root, selectionPolicy, playoutPolicy, BackpropagationFlags.PROOF_DISPROOF_NUMBERS, PROOF_PLAYER);
+    }
+
+    private static void assertTreeMatchesFullRecomputation(final Node root) {
+        for (final var node : TestTrees.collectNodes(root)) {
+            final int expectedProofNumber;
+            final int expectedDisproofNumber;
+
+            if (node.isTerminal()) {
+                final boolean won = RankUtils.utilities(node.getContext())[PROOF_PLAYER] == 1.0;
+                expectedProofNumber = won ? 0 : Integer.MAX_VALUE;
+                expectedDisproofNumber = won ? Integer.MAX_VALUE : 0;
+            } else if (node.getChildren().isEmpty()) {
+                expectedProofNumber = 1;
+                expectedDisproofNumber = 1;
+            } else if (node.getPlayer() == PROOF_PLAYER) {
+                expectedProofNumber = minChildNumber(node, true);
+                expectedDisproofNumber = sumChildNumbers(node, false);
+            } else {
+                expectedProofNumber = sumChildNumbers(node, true);
+                expectedDisproofNumber = minChildNumber(node, false);
+            }
+
+            assertEquals("proof number", expectedProofNumber, node.getProofNumber());
+            assertEquals("disproof number", expectedDisproofNumber, node.getDisproofNumber());
+        }
+    }
+
+    // OR nodes need to prove one child
+    private static int minChildNumber(final Node node, final boolean proof) {
+        int min = Integer.MAX_VALUE;
+        for (final var child : node.getChildren()) {
+            min = Integer.min(min, proof ? child.getProofNumber() : child.getDisproofNumber());
+        }
+        return min;
+    }
+
+    // AND nodes need to prove all children, every unexpanded move counts as a new leaf
+    private static int sumChildNumbers(final Node node, final boolean proof) {
+        long sum = node.getUnexpandedMoves().size();
+        for (final var child : node.getChildren()) {
+            final int number = proof ? child.getProofNumber() : child.getDisproofNumber();
+            if (number == Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            }
+            sum += number;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, sum);
+    }
+}
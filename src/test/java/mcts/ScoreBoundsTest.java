@@ -0,0 +1,92 @@
+package mcts;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import mcts.policies.backpropagation.BackpropagationFlags;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import mcts.policies.selection.ScoreBoundedSelectionPolicy;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.junit.Test;
+import other.RankUtils;
+
+// The incremental Node.propagateScoreBounds against a full recomputation of every node from all its children
+public class ScoreBoundsTest {
+    private static final double WIN_SCORE = 1.0;
+    private static final double LOSS_SCORE = -WIN_SCORE;
+
+    @Test
+    public void boundsDuringSearchMatchFullRecomputation() {
+        final Node root = growTree(2_000, BackpropagationFlags.SCORE_BOUNDS);
+        assertTreeMatchesFullRecomputation(root);
+    }
+
+    @Test
+    public void boundsAfterEveryTerminalNodeMatchFullRecomputation() {
+        final Node root = growTree(1_000, 0);
+
+        final List<Node> terminalNodes = new ArrayList<>();
+        for (final var node : TestTrees.collectNodes(root)) {
+            if (node.isTerminal()) {
+                terminalNodes.add(node);
+            }
+        }
+        Collections.shuffle(terminalNodes, new Random(0));
+
+        // the bounds of a tree searched without them are the initial ones, so the tree is consistent at the start
+        for (final var node : terminalNodes) {
+            node.propagateScoreBounds(RankUtils.utilities(node.getContext()));
+            assertTreeMatchesFullRecomputation(root);
+        }
+    }
+
+    private static Node growTree(final int numIterations, final int flags) {
+        final ISelectionPolicy selectionPolicy = new ScoreBoundedSelectionPolicy(new UCB1SelectionPolicy());
+        final var playoutPolicy = new UniformPlayoutPolicy();
+        final Node root = TestTrees.createRoot("Tic-Tac-Toe.lud");
+
+        for (var i = 0; i < numIterations && !root.isSolved(root.getPlayer()); i++) {
+            TestTrees.runIteration(root, selectionPolicy, playoutPolicy, flags, 1);
+        }
+        return root;
+    }
+
+    private static void assertTreeMatchesFullRecomputation(final Node root) {
+        final int playerCount = root.getArena().getPlayerCount();
+
+        for (final var node : TestTrees.collectNodes(root)) {
+            if (node.isTerminal()) {
+                continue;
+            }
+
+            final var children = node.getChildren();
+            for (var p = 1; p <= playerCount; p++) {
+                final int player = p;
+                final boolean isMover = player == node.getPlayer();
+
+                final var pessimistic = children.stream().mapToDouble(child -> child.getPessimisticScore(player));
+                final var optimistic = children.stream().mapToDouble(child -> child.getOptimisticScore(player));
+
+                final double expectedPessimistic;
+                final double expectedOptimistic;
+                if (node.isExpanded()) {
+                    expectedPessimistic = (isMover ? pessimistic.max() : pessimistic.min()).orElse(LOSS_SCORE);
+                    expectedOptimistic = (isMover ? optimistic.max() : optimistic.min()).orElse(WIN_SCORE);
+                } else if (isMover) {
+                    expectedPessimistic = pessimistic.max().orElse(LOSS_SCORE);
+                    expectedOptimistic = WIN_SCORE;
+                } else {
+                    expectedPessimistic = LOSS_SCORE;
+                    expectedOptimistic = optimistic.min().orElse(WIN_SCORE);
+                }
+
+                assertEquals("pessimistic score", expectedPessimistic, node.getPessimisticScore(player), 0.0);
+                assertEquals("optimistic score", expectedOptimistic, node.getOptimisticScore(player), 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package mcts;
+
+import game.Game;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import mcts.policies.playout.IPlayoutPolicy;
+import mcts.policies.playout.UniformPlayoutPolicy;
+import mcts.policies.selection.ISelectionPolicy;
+import org.junit.Assume;
+import other.GameLoader;
+import other.context.Context;
+import other.trial.Trial;
+
+// Trees searched in real games, shared by the tests of the node statistics.
+// A test is skipped (not failed) when Ludii can not load its game.
+final class TestTrees {
+    private TestTrees() {}
+
+    // The initial state of the game
+    static Context startGame(final String gameName) {
+        Game game = null;
+        try {
+            game = GameLoader.loadGameFromName(gameName);
+        } catch (final RuntimeException | LinkageError e) {
+            Assume.assumeNoException("Ludii can not load " + gameName, e);
+        }
+        Assume.assumeNotNull(game);
+
+        final Context context = new Context(game, new Trial(game));
+        game.start(context);
+        return context;
+    }
+
+    // The root of a new tree in a new arena, at the initial state of the game
+    static Node createRoot(final String gameName) {
+        final Context context = startGame(gameName);
+        return Node.createRoot(new NodeArena(context.game().players().count()), context);
+    }
+
+    // One iteration with a single expansion, returns the new node (or the terminal node reached)
+    static Node runIteration(
+            final Node root,
+            final ISelectionPolicy selectionPolicy,
+            final IPlayoutPolicy playoutPolicy,
+            final int flags,
+            final int proofPlayer) {
+        Node current = root;
+        while (!current.isTerminal() && current.isExpanded()) {
+            current = current.select(selectionPolicy);
+        }
+
+        final Node newNode = current.expand();
+        newNode.propagate(newNode.simulate(playoutPolicy), flags, proofPlayer);
+        return newNode;
+    }
+
+    // Searches the tree with uniform playouts
+    static void grow(
+            final Node root, final ISelectionPolicy selectionPolicy, final int flags, final int numIterations) {
+        final var playoutPolicy = new UniformPlayoutPolicy();
+        for (var i = 0; i < numIterations; i++) {
+            runIteration(root, selectionPolicy, playoutPolicy, flags, 1);
+        }
+    }
+
+    // All nodes of the tree, the root first
+    static List<Node> collectNodes(final Node root) {
+        final List<Node> nodes = new ArrayList<>();
+        final var stack = new ArrayDeque<Node>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final var node = stack.pop();
+            nodes.add(node);
+            for (final var child : node.getChildren()) {
+                stack.push(child);
+            }
+        }
+        return nodes;
+    }
+}
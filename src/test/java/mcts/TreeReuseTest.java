@@ -0,0 +1,55 @@
+package mcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayDeque;
+import mcts.policies.selection.UCB1SelectionPolicy;
+import org.junit.Test;
+
+// Moving the root of a tree down to a child frees everything but the subtree of the child
+public class TreeReuseTest {
+    @Test
+    public void movingTheRootFreesTheOldRootAndItsBlock() {
+        Node root = TestTrees.createRoot("Tic-Tac-Toe.lud");
+        final var arena = root.getArena();
+
+        for (var move = 0; move < 4; move++) {
+            TestTrees.grow(root, new UCB1SelectionPolicy(), 0, 500);
+
+            final Node child = root.select(new UCB1SelectionPolicy());
+            final Node oldRoot = root;
+            final int oldRootId = root.getId();
+
+            root.releaseChildrenExcept(child);
+            arena.moveRoot(oldRootId, child.getId());
+            child.detachFromParent(child.getContext());
+            root = child;
+
+            assertFalse(arena.contains(oldRoot));
+            assertEquals(countSlots(arena, root.getId()), arena.getNumAllocatedSlots());
+        }
+
+        arena.releaseTree(root.getId());
+        assertEquals(0, arena.getNumAllocatedSlots());
+    }
+
+    // The slot of the root and the children blocks below it, including the slots of children not expanded yet
+    private static int countSlots(final NodeArena arena, final int rootId) {
+        final var stack = new ArrayDeque<Integer>();
+        stack.push(rootId);
+
+        int count = 1;
+        while (!stack.isEmpty()) {
+            final int current = stack.pop();
+            final int firstChild = arena.getFirstChild(current);
+            if (firstChild >= 0) {
+                count += arena.getMaxChildren(current);
+                for (var childId = firstChild; childId < firstChild + arena.getNumChildren(current); childId++) {
+                    stack.push(childId);
+                }
+            }
+        }
+        return count;
+    }
+}